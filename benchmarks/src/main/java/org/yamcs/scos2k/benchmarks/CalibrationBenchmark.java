@@ -0,0 +1,107 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yamcs.mdb.CalibratorProc;
+import org.yamcs.mdb.NumericCalibratorProc;
+import org.yamcs.mdb.SplineCalibratorProc;
+import org.yamcs.mdb.XtceProcessingException;
+import org.yamcs.parameter.Value;
+import org.yamcs.scos2k.CafCalibrator;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.FloatParameterType;
+import org.yamcs.xtce.IntegerDataEncoding;
+import org.yamcs.xtce.SplineCalibrator;
+import org.yamcs.xtce.SplinePoint;
+
+/**
+ * Measures the calibration of 16 bits raw values with a numerical calibration curve (CAF/CAP) of numPoints points,
+ * regularly spaced or not:
+ * <ul>
+ * <li>spline - the Yamcs spline calibrator, searching linearly for the segment</li>
+ * <li>caf - the {@link CafCalibrator} used by the loader, with precomputed slopes and a binary search or a division
+ * for the regularly spaced points</li>
+ * </ul>
+ * The time reported is the average per value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CalibrationBenchmark {
+    static final int NUM_VALUES = 1024;
+
+    @Param({ "16", "64", "200" })
+    int numPoints;
+
+    @Param({ "true", "false" })
+    boolean uniform;
+
+    CalibratorProc spline;
+    CalibratorProc caf;
+    Value[] values;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        List<SplinePoint> points = new ArrayList<>();
+        double x = 0;
+        double y = -50;
+        double step = 65535.0 / (numPoints - 1);
+        for (int i = 0; i < numPoints; i++) {
+            points.add(new SplinePoint(Math.round(x), y));
+            x += uniform ? step : step * (0.2 + 1.6 * random.nextDouble());
+            y += random.nextDouble() * 5;
+        }
+
+        FloatParameterType.Builder b = new FloatParameterType.Builder();
+        b.setName("calibrated");
+        b.setEncoding(new IntegerDataEncoding.Builder().setSizeInBits(16)
+                .setEncoding(IntegerDataEncoding.Encoding.UNSIGNED));
+        FloatParameterType ptype = b.build();
+
+        spline = new NumericCalibratorProc(ptype, new SplineCalibratorProc(new SplineCalibrator(points)));
+        CafCalibrator c = new CafCalibrator();
+        c.init(new CafCalibrator.Definition("bench", points), null, null, ptype);
+        caf = c;
+
+        values = new Value[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values[i] = ValueUtility.getUint32Value(random.nextInt(65536));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void spline(Blackhole bh) throws XtceProcessingException {
+        for (Value v : values) {
+            bh.consume(spline.calibrate(v, null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void caf(Blackhole bh) throws XtceProcessingException {
+        for (Value v : values) {
+            bh.consume(caf.calibrate(v, null));
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.SimpleCompiler;
+import org.yamcs.logging.Log;
+import org.yamcs.mdb.ContainerProcessingResult;
+import org.yamcs.mdb.DataEncodingDecoder;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.ParameterTypeProcessor;
+import org.yamcs.mdb.ProcessorData;
+import org.yamcs.parameter.ContainerParameterValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.utils.BitBuffer;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.BinaryDataEncoding;
+import org.yamcs.xtce.BooleanDataEncoding;
+import org.yamcs.xtce.DataEncoding;
+import org.yamcs.xtce.FixedIntegerValue;
+import org.yamcs.xtce.FloatDataEncoding;
+import org.yamcs.xtce.IntegerDataEncoding;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterEntry;
+import org.yamcs.xtce.Repeat;
+import org.yamcs.xtce.SequenceContainer;
+import org.yamcs.xtce.SequenceEntry;
+import org.yamcs.xtce.SequenceEntry.ReferenceLocationType;
+import org.yamcs.xtce.StringDataEncoding;
+
+/**
+ * Decodes the fixed packets (packets defined in the PLF table) with code generated and compiled for each SPID.
+ * <p>
+ * It is an alternative to the Yamcs XtceTmExtractor which interprets the container entries one by one, used only by
+ * the {@link PacketDecodeBenchmark} to measure what such a decoder would gain: Yamcs offers no hook to replace the
+ * extractor of a processor, so it is not part of the plugin.
+ * <p>
+ * For each SPID container whose entries (including the ones inherited from the header containers) are all parameters
+ * located at a constant offset from the packet start, optionally repeated a fixed number of times, a
+ * {@link FixedPacketDecoder} is generated extracting the raw values in one straight-line method. The integer, float
+ * and boolean values are decoded by the generated code; the strings and binary values by the Yamcs decoder at the
+ * position computed in advance.
+ * <p>
+ * The packets with variable (VPD) parts or deduced parameters are not compiled and are left to the Yamcs extractor.
+ * <p>
+ * The SPID container is found with the {@link PacketIdentifier}; the raw values are calibrated with the Yamcs
+ * {@link ParameterTypeProcessor}.
+ * <p>
+ * The container results (used for example by the packet viewer) are not produced.
+ */
+public class CompiledTmExtractor {
+    static final Log log = new Log(CompiledTmExtractor.class);
+    // above this number of values the generated method could exceed the maximum method size
+    static final int MAX_SLOTS = 2000;
+
+    final ProcessorData pdata;
+    final PacketIdentifier identifier;
+    final Map<SequenceContainer, CompiledPacket> packets = new IdentityHashMap<>();
+
+    /**
+     * One value extracted from the packet
+     */
+    static class Slot {
+        final Parameter parameter;
+        final SequenceEntry entry;
+        final int bitOffset;
+        final int bitSize;
+        // encoding of the values not decoded by the generated code
+        DataEncoding fallback;
+
+        Slot(Parameter parameter, SequenceEntry entry, int bitOffset, int bitSize) {
+            this.parameter = parameter;
+            this.entry = entry;
+            this.bitOffset = bitOffset;
+            this.bitSize = bitSize;
+        }
+    }
+
+    static class CompiledPacket {
+        final Slot[] slots;
+        FixedPacketDecoder decoder;
+
+        CompiledPacket(Slot[] slots) {
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Generates and compiles the decoders of all the fixed packets of the MDB.
+     *
+     * @throws IllegalArgumentException
+     *             if the MDB has not been loaded by the MIB loader
+     */
+    public CompiledTmExtractor(ProcessorData pdata) {
+        this.pdata = pdata;
+        Mdb mdb = pdata.getMdb();
+        this.identifier = PacketIdentifier.create(mdb);
+
+        List<CompiledPacket> l = new ArrayList<>();
+        StringBuilder code = new StringBuilder();
+        for (SequenceContainer sc : identifier.getSpidContainers()) {
+            List<Slot> slots = getSlots(mdb, sc);
+            if (slots == null) {
+                continue;
+            }
+            CompiledPacket cp = new CompiledPacket(slots.toArray(new Slot[0]));
+            generateCode(code, getClassName(l.size()), sc, cp.slots);
+            l.add(cp);
+            packets.put(sc, cp);
+        }
+        if (l.isEmpty()) {
+            return;
+        }
+
+        try {
+            SimpleCompiler compiler = new SimpleCompiler();
+            compiler.setParentClassLoader(FixedPacketDecoder.class.getClassLoader());
+            compiler.cook(code.toString());
+            ClassLoader cl = compiler.getClassLoader();
+            for (int i = 0; i < l.size(); i++) {
+                l.get(i).decoder = (FixedPacketDecoder) cl.loadClass(getClassName(i)).getDeclaredConstructor()
+                        .newInstance();
+            }
+        } catch (CompileException | ReflectiveOperationException e) {
+            log.warn("Failed to compile the packet decoders, all the packets will be left to the Yamcs extractor", e);
+            packets.clear();
+        }
+        log.debug("Compiled decoders for {} fixed packets", packets.size());
+    }
+
+    /**
+     * Decodes the packet if it is one of the compiled fixed packets.
+     *
+     * @return the extracted parameter values or null if the packet cannot be decoded (e.g. it is not identified or
+     *         it is too short); the packet has then to be processed by the Yamcs extractor.
+     */
+    public ContainerProcessingResult processPacket(byte[] packet, long rectime, long gentime, int seqCount) {
+        SequenceContainer sc = identifier.identify(packet);
+        if (sc == null) {
+            return null;
+        }
+        CompiledPacket cp = packets.get(sc);
+        if (cp == null) {
+            return null;
+        }
+        Slot[] slots = cp.slots;
+        Value[] raw = new Value[slots.length];
+        if (!cp.decoder.decode(packet, raw)) {
+            return null;
+        }
+
+        ContainerProcessingResult result = new ContainerProcessingResult(rectime, gentime, seqCount,
+                pdata.getLastValueCache());
+        ParameterTypeProcessor ptypeProcessor = pdata.getParameterTypeProcessor();
+        BitBuffer buf = null;
+        DataEncodingDecoder decoder = null;
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            Value v = raw[i];
+            int bitSize = slot.bitSize;
+            if (v == null) {
+                if (decoder == null) {
+                    buf = new BitBuffer(packet);
+                    decoder = new DataEncodingDecoder(pdata, buf);
+                }
+                try {
+                    buf.setPosition(slot.bitOffset);
+                    v = decoder.extractRaw(slot.fallback, null);
+                } catch (RuntimeException e) {
+                    log.debug("Failed to extract {}: {}", slot.parameter.getQualifiedName(), e.toString());
+                    return null;
+                }
+                bitSize = buf.getPosition() - slot.bitOffset;
+            }
+            ContainerParameterValue pv = new ContainerParameterValue(slot.parameter, 0, slot.bitOffset);
+            pv.setRawValue(v);
+            pv.setBitSize(bitSize);
+            ptypeProcessor.calibrate(result, pv);
+            pv.setAcquisitionTime(rectime);
+            pv.setGenerationTime(gentime);
+            pv.setSequenceEntry(slot.entry);
+            result.addTmParam(pv);
+        }
+        return result;
+    }
+
+    /**
+     * the number of packets decoded by generated code
+     */
+    public int getNumCompiledPackets() {
+        return packets.size();
+    }
+
+    /**
+     * Collects the values of the container and of its base containers, in the order they are extracted by Yamcs.
+     *
+     * @return null if the container cannot be compiled
+     */
+    private static List<Slot> getSlots(Mdb mdb, SequenceContainer sc) {
+        List<SequenceContainer> inheriting = mdb.getInheritingContainers(sc);
+        if (inheriting != null && !inheriting.isEmpty()) {
+            return null;
+        }
+        List<SequenceContainer> chain = new ArrayList<>();
+        for (SequenceContainer c = sc; c != null; c = c.getBaseContainer()) {
+            chain.add(c);
+        }
+        Collections.reverse(chain);
+
+        List<Slot> slots = new ArrayList<>();
+        for (SequenceContainer c : chain) {
+            for (SequenceEntry se : c.getEntryList()) {
+                if (!(se instanceof ParameterEntry pe)
+                        || se.getReferenceLocation() != ReferenceLocationType.CONTAINER_START
+                        || se.getIncludeCondition() != null
+                        || !(pe.getParameter().getParameterType() instanceof BaseDataType ptype)
+                        || ptype.getEncoding() == null) {
+                    return null;
+                }
+                DataEncoding encoding = ptype.getEncoding();
+                int count = 1;
+                int gap = 0;
+                Repeat repeat = se.getRepeatEntry();
+                if (repeat != null) {
+                    if (!(repeat.getCount() instanceof FixedIntegerValue fiv)) {
+                        return null;
+                    }
+                    count = (int) fiv.getValue();
+                    gap = repeat.getOffsetSizeInBits();
+                }
+                int bitOffset = se.getLocationInContainerInBits();
+                if (isCompilable(encoding, bitOffset)) {
+                    int size = encoding.getSizeInBits();
+                    for (int k = 0; k < count; k++) {
+                        slots.add(new Slot(pe.getParameter(), se, bitOffset + k * (size + gap), size));
+                    }
+                } else if (count == 1 && isDecodable(encoding)) {
+                    Slot slot = new Slot(pe.getParameter(), se, bitOffset, -1);
+                    slot.fallback = encoding;
+                    slots.add(slot);
+                } else {
+                    return null;
+                }
+            }
+        }
+        return slots.size() > MAX_SLOTS ? null : slots;
+    }
+
+    // encodings decoded by the generated code
+    static boolean isCompilable(DataEncoding encoding, int bitOffset) {
+        if (encoding.getFromBinaryTransformAlgorithm() != null) {
+            return false;
+        }
+        int size = encoding.getSizeInBits();
+        if (encoding instanceof IntegerDataEncoding ide) {
+            return ide.getByteOrder() == ByteOrder.BIG_ENDIAN
+                    && (ide.getEncoding() == IntegerDataEncoding.Encoding.UNSIGNED
+                            || ide.getEncoding() == IntegerDataEncoding.Encoding.TWOS_COMPLEMENT)
+                    && size > 0 && (size <= 57 || (size == 64 && bitOffset % 8 == 0));
+        } else if (encoding instanceof FloatDataEncoding fde) {
+            return fde.getByteOrder() == ByteOrder.BIG_ENDIAN
+                    && fde.getEncoding() == FloatDataEncoding.Encoding.IEEE754_1985
+                    && (size == 32 || (size == 64 && bitOffset % 8 == 0));
+        } else if (encoding instanceof BooleanDataEncoding) {
+            return size > 0 && size <= 57;
+        }
+        return false;
+    }
+
+    // encodings decoded by Yamcs at a position known in advance (without the container processing context)
+    static boolean isDecodable(DataEncoding encoding) {
+        if (encoding.getFromBinaryTransformAlgorithm() != null) {
+            return false;
+        }
+        if (encoding instanceof StringDataEncoding sde) {
+            return sde.getDynamicBufferSize() == null;
+        } else if (encoding instanceof BinaryDataEncoding bde) {
+            return bde.getType() == BinaryDataEncoding.Type.FIXED_SIZE
+                    || bde.getType() == BinaryDataEncoding.Type.LEADING_SIZE;
+        }
+        return false;
+    }
+
+    static String getClassName(int idx) {
+        return "FixedPacketDecoder_" + idx;
+    }
+
+    static void generateCode(StringBuilder code, String className, SequenceContainer sc, Slot[] slots) {
+        int minLength = 0;
+        for (Slot slot : slots) {
+            if (slot.fallback == null) {
+                minLength = Math.max(minLength, (slot.bitOffset + slot.bitSize + 7) / 8);
+            } else {
+                minLength = Math.max(minLength, slot.bitOffset / 8);
+            }
+        }
+        code.append("// ").append(sc.getQualifiedName()).append("\n")
+                .append("public final class ").append(className)
+                .append(" extends org.yamcs.scos2k.benchmarks.FixedPacketDecoder {\n")
+                .append("  public boolean decode(byte[] b, org.yamcs.parameter.Value[] raw) {\n")
+                .append("    if (b.length < ").append(minLength).append(") {\n")
+                .append("      return false;\n")
+                .append("    }\n");
+        for (int i = 0; i < slots.length; i++) {
+            Slot slot = slots[i];
+            if (slot.fallback != null) {
+                continue;
+            }
+            DataEncoding encoding = ((BaseDataType) slot.parameter.getParameterType()).getEncoding();
+            String v = getReadExpression(slot.bitOffset, slot.bitSize);
+            int size = slot.bitSize;
+            String value = switch (DataEncodingDecoder.getRawType(encoding)) {
+            case UINT32 -> "getUint32Value((int) " + v + ")";
+            case SINT32 -> "getSint32Value((int) signed(" + v + ", " + size + "))";
+            case UINT64 -> "getUint64Value(" + v + ")";
+            case SINT64 -> "getSint64Value(signed(" + v + ", " + size + "))";
+            case FLOAT -> "getFloatValue(Float.intBitsToFloat((int) " + v + "))";
+            case DOUBLE -> "getDoubleValue(Double.longBitsToDouble(" + v + "))";
+            case BOOLEAN -> "getBooleanValue(" + v + " != 0)";
+            default -> throw new IllegalStateException("Unexpected encoding " + encoding);
+            };
+            code.append("    raw[").append(i).append("] = org.yamcs.utils.ValueUtility.").append(value)
+                    .append("; // ").append(slot.parameter.getName()).append("\n");
+        }
+        code.append("    return true;\n")
+                .append("  }\n")
+                .append("}\n");
+    }
+
+    // the byte aligned values are read with the specialized methods
+    static String getReadExpression(int bitOffset, int size) {
+        if (bitOffset % 8 == 0) {
+            int idx = bitOffset / 8;
+            switch (size) {
+            case 8:
+                return "u8(b, " + idx + ")";
+            case 16:
+                return "u16(b, " + idx + ")";
+            case 24:
+                return "u24(b, " + idx + ")";
+            case 32:
+                return "(u32(b, " + idx + ") & 0xFFFFFFFFL)";
+            case 64:
+                return "u64(b, " + idx + ")";
+            }
+        }
+        return "bits(b, " + bitOffset + ", " + size + ")";
+    }
+}
@@ -0,0 +1,63 @@
+package org.yamcs.scos2k.benchmarks;
+
+import org.yamcs.parameter.Value;
+
+/**
+ * Base class of the decoders generated by the {@link CompiledTmExtractor} for the fixed packets.
+ * <p>
+ * The generated {@link #decode(byte[], Value[])} method extracts the raw values of the packet in one straight-line
+ * method: each value is read at a constant position with one of the static methods below and stored in the array slot
+ * corresponding to the parameter (or to the parameter occurrence for the repeated ones).
+ */
+public abstract class FixedPacketDecoder {
+
+    /**
+     * Extracts the raw values from the packet.
+     * <p>
+     * The slots of the values which are not decoded by the generated code (e.g. strings) are left unchanged.
+     *
+     * @return false if the packet is too short
+     */
+    public abstract boolean decode(byte[] b, Value[] raw);
+
+    protected static int u8(byte[] b, int i) {
+        return b[i] & 0xFF;
+    }
+
+    protected static int u16(byte[] b, int i) {
+        return ((b[i] & 0xFF) << 8) | (b[i + 1] & 0xFF);
+    }
+
+    protected static int u24(byte[] b, int i) {
+        return ((b[i] & 0xFF) << 16) | ((b[i + 1] & 0xFF) << 8) | (b[i + 2] & 0xFF);
+    }
+
+    protected static int u32(byte[] b, int i) {
+        return ((b[i] & 0xFF) << 24) | ((b[i + 1] & 0xFF) << 16) | ((b[i + 2] & 0xFF) << 8) | (b[i + 3] & 0xFF);
+    }
+
+    protected static long u64(byte[] b, int i) {
+        return ((long) u32(b, i) << 32) | (u32(b, i + 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * big endian read of maximum 57 bits starting at an arbitrary bit position
+     */
+    protected static long bits(byte[] b, int bitOffset, int width) {
+        int first = bitOffset >> 3;
+        int last = (bitOffset + width - 1) >> 3;
+        long v = 0;
+        for (int i = first; i <= last; i++) {
+            v = (v << 8) | (b[i] & 0xFF);
+        }
+        int shift = 8 * (last + 1) - bitOffset - width;
+        return (v >>> shift) & ((1L << width) - 1);
+    }
+
+    /**
+     * sign extension of a two's complement value of the given size in bits
+     */
+    protected static long signed(long v, int width) {
+        return (v << (64 - width)) >> (64 - width);
+    }
+}
@@ -0,0 +1,124 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yamcs.mdb.CalibratorFactory;
+import org.yamcs.mdb.CalibratorProc;
+import org.yamcs.mdb.XtceProcessingException;
+import org.yamcs.parameter.Value;
+import org.yamcs.scos2k.LgfCalibrator;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.FloatParameterType;
+import org.yamcs.xtce.IntegerDataEncoding;
+import org.yamcs.xtce.JavaExpressionCalibrator;
+
+/**
+ * Measures the logarithmic (LGF) calibration of 12 bits raw values:
+ * <ul>
+ * <li>expression - the Java expression calling {@code LogCalibration.calibrate(v, new double[]{...})}, as created
+ * by the previous versions of the loader</li>
+ * <li>lgf/lgfTable - the {@link LgfCalibrator} without respectively with the table of the calibrated values</li>
+ * <li>bulk/bulkTable - the {@link LgfCalibrator#calibrate(double[], double[])} array calibration</li>
+ * </ul>
+ * The time reported is the average per value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LogCalibrationBenchmark {
+    static final int NUM_VALUES = 1024;
+    static final double[] COEFFICIENTS = { 1.129e-3, 2.341e-4, 0, 8.775e-8, 0 };
+
+    CalibratorProc expression;
+    LgfCalibrator lgf;
+    LgfCalibrator lgfTable;
+    Value[] values;
+    double[] rawValues;
+    double[] out;
+
+    @Setup
+    public void setup() {
+        FloatParameterType.Builder b = new FloatParameterType.Builder();
+        b.setName("temperature");
+        b.setEncoding(new IntegerDataEncoding.Builder().setSizeInBits(12)
+                .setEncoding(IntegerDataEncoding.Encoding.UNSIGNED));
+        FloatParameterType ptype = b.build();
+
+        double[] a = COEFFICIENTS;
+        StringBuilder sb = new StringBuilder("org.yamcs.scos2k.LogCalibration.calibrate(v, new double[]{");
+        for (int i = 0; i < a.length; i++) {
+            sb.append(i > 0 ? ", " : "").append(a[i]);
+        }
+        sb.append("})");
+        expression = CalibratorFactory.get(new JavaExpressionCalibrator(sb.toString()), ptype, null);
+
+        lgf = new LgfCalibrator();
+        lgf.init(new LgfCalibrator.Definition("bench", a[0], a[1], a[2], a[3], a[4], 0), null, null, ptype);
+        lgfTable = new LgfCalibrator();
+        lgfTable.init(new LgfCalibrator.Definition("bench", a[0], a[1], a[2], a[3], a[4], 12), null, null, ptype);
+
+        Random random = new Random(0);
+        values = new Value[NUM_VALUES];
+        rawValues = new double[NUM_VALUES];
+        out = new double[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            int v = 1 + random.nextInt(4095);
+            values[i] = ValueUtility.getUint32Value(v);
+            rawValues[i] = v;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void expression(Blackhole bh) throws XtceProcessingException {
+        for (Value v : values) {
+            bh.consume(expression.calibrate(v, null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void lgf(Blackhole bh) throws XtceProcessingException {
+        for (Value v : values) {
+            bh.consume(lgf.calibrate(v, null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public void lgfTable(Blackhole bh) throws XtceProcessingException {
+        for (Value v : values) {
+            bh.consume(lgfTable.calibrate(v, null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public double[] bulk() {
+        lgf.calibrate(rawValues, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_VALUES)
+    public double[] bulkTable() {
+        lgfTable.calibrate(rawValues, out);
+        return out;
+    }
+}
@@ -0,0 +1,1048 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.yamcs.scos2k.MibLoader;
+
+/**
+ * Writes a synthetic SCOS-2000 ASCII MIB of configurable size, together with a file containing one CCSDS packet for
+ * each telemetry packet defined in the MIB.
+ * <p>
+ * The MIB is consistent: it loads without errors with the {@link MibLoader} configured with {@link #loaderConfig}. It
+ * contains all the tables read by the loader and the alphanumeric displays (dpf/dpc):
+ * <ul>
+ * <li>monitoring parameters of all the usual types: raw or calibrated with numerical, polynomial, logarithmic, textual
+ * and context dependent (cur) calibrations, with limits, synthetic (OL) parameters, constants and deduced parameters
+ * </li>
+ * <li>housekeeping packets (3,25) identified by a SID with up to a few hundreds SIDs per APID, parameter dump packets
+ * containing deduced parameters, event packets (5,x) defined in the vpd table with repeated groups, PUS1 and PUS17
+ * reports</li>
+ * <li>commands with fixed, editable and read-only arguments, repeated groups, pre-transmission validation, PUS1 and
+ * parameter based verification</li>
+ * </ul>
+ * The number of the calibrations, packets, commands and displays is proportional to the number of parameters. The
+ * content depends only on the number of parameters and the seed.
+ * <p>
+ * The packets are written one after the other in {@value #PACKETS_FILE}, without any additional framing.
+ * <p>
+ * Usage: {@code MibGenerator <outputDir> [numParams] [seed]}
+ */
+public class MibGenerator {
+    public static final String PACKETS_FILE = "packets.raw";
+    public static final int MIN_PARAMS = 1000;
+
+    // PUS TM data field header: version, type, subtype, destination id followed by a 6 bytes CUC time
+    static final int TYPE_OFFSET = 7;
+    static final int SUBTYPE_OFFSET = 8;
+    static final int DFH_SIZE = 16;
+    // the SID of the housekeeping packets and the event id of the event packets follow the data field header
+    static final int PI1_OFFSET = DFH_SIZE;
+    static final int PI1_WIDTH = 16;
+    static final int FIRST_HK_APID = 100;
+    static final int FIRST_TC_APID = 1000;
+    static final String TC_HEADER = "TCHDR";
+
+    static final String[] LABELS = { "OFF", "ON", "STANDBY", "FAILED", "DISABLED", "ENABLED", "IDLE", "BUSY" };
+    static final String[] MODES = { "NOMINAL", "SAFE", "SURVIVAL", "TEST" };
+    static final String MODE_TXF = "TXFMODE";
+    static final String[] UNITS = { "degC", "V", "A", "W", "rpm", "bar" };
+    static final int[][] TC_SERVICES = { { 2, 1 }, { 3, 5 }, { 3, 6 }, { 5, 5 }, { 5, 6 }, { 8, 1 }, { 11, 4 },
+            { 12, 1 }, { 20, 1 }, { 20, 3 } };
+
+    static final String[] TABLES = { "vdf", "cur", "caf", "cap", "txf", "txp", "mcf", "lgf", "pcf", "pic", "pid",
+            "tpcf", "plf", "vpd", "ocf", "ocp", "tcp", "pcpc", "pcdf", "cca", "ccs", "paf", "pas", "cpc", "cdf", "ccf",
+            "prf", "prv", "ptv", "cve", "cvs", "cvp", "dpf", "dpc" };
+
+    final Path dir;
+    final int numParams;
+    final long seed;
+    final Random random;
+
+    final Map<String, BufferedWriter> writers = new HashMap<>();
+    final Map<String, Integer> rowCounts = new LinkedHashMap<>();
+
+    int paramCount = 0;
+    long nextPid = 1000;
+    int numCalibrations;
+    // number of states of each textual calibration
+    int[] txfStates;
+
+    final List<Param> params = new ArrayList<>();
+    final List<Param> modeParams = new ArrayList<>();
+    // parameters placed in the housekeeping packets
+    final List<Param> hkParams = new ArrayList<>();
+    // raw integer and float parameters, used as OL inputs, in the event packets and in verification expressions
+    final List<Param> numericParams = new ArrayList<>();
+    // parameters with a numeric calibration, the engineering value is a float
+    final List<Param> calibratedParams = new ArrayList<>();
+    final List<Param> statusParams = new ArrayList<>();
+    final List<Param> pidParams = new ArrayList<>();
+    // deduced parameter -> the parameter containing its PID
+    final List<Param[]> deducedParams = new ArrayList<>();
+    final List<Param> syntheticParams = new ArrayList<>();
+    final List<Param> counterParams = new ArrayList<>();
+    Param eventIdParam;
+    Param failureCodeParam;
+
+    int numPackets = 0;
+    long nextSpid = 10000;
+    final Map<Integer, Integer> seqCounts = new HashMap<>();
+    OutputStream packetsOut;
+
+    int numCommands;
+
+    public MibGenerator(Path dir, int numParams, long seed) {
+        if (numParams < MIN_PARAMS) {
+            throw new IllegalArgumentException("The number of parameters has to be at least " + MIN_PARAMS);
+        }
+        this.dir = dir;
+        this.numParams = numParams;
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: MibGenerator <outputDir> [numParams] [seed]");
+            System.exit(1);
+        }
+        Path dir = Path.of(args[0]);
+        int numParams = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        long t0 = System.currentTimeMillis();
+        MibGenerator generator = new MibGenerator(dir, numParams, seed);
+        generator.generate();
+        System.out.println("Generated in " + dir + " in " + (System.currentTimeMillis() - t0) + " ms:");
+        generator.rowCounts.forEach((table, n) -> System.out.printf("  %-8s %8d rows%n", table + ".dat", n));
+        System.out.printf("  %-8s %8d packets%n", PACKETS_FILE, generator.numPackets);
+    }
+
+    /**
+     * Returns the arguments of the {@link MibLoader} loading the generated MIB from the given directory.
+     */
+    public static Map<String, Object> loaderConfig(Path dir) {
+        Map<String, Object> tm = new HashMap<>();
+        tm.put("pus1DataOffset", DFH_SIZE);
+        tm.put("typeOffset", TYPE_OFFSET);
+        tm.put("subTypeOffset", SUBTYPE_OFFSET);
+
+        Map<String, Object> args = new HashMap<>();
+        args.put("path", dir.toString());
+        args.put("epoch", "UNIX");
+        args.put("TM", tm);
+        args.put("TC", new HashMap<>());
+        return args;
+    }
+
+    /**
+     * Reads the packets written by the generator.
+     */
+    public static List<byte[]> readPackets(Path dir) throws IOException {
+        byte[] data = Files.readAllBytes(dir.resolve(PACKETS_FILE));
+        List<byte[]> packets = new ArrayList<>();
+        int offset = 0;
+        while (offset < data.length) {
+            int length = 7 + (((data[offset + 4] & 0xFF) << 8) | (data[offset + 5] & 0xFF));
+            byte[] packet = new byte[length];
+            System.arraycopy(data, offset, packet, 0, length);
+            packets.add(packet);
+            offset += length;
+        }
+        return packets;
+    }
+
+    public void generate() throws IOException {
+        Files.createDirectories(dir.resolve("synthetic"));
+        try {
+            for (String table : TABLES) {
+                writers.put(table, Files.newBufferedWriter(dir.resolve(table + ".dat"), StandardCharsets.US_ASCII));
+                rowCounts.put(table, 0);
+            }
+            packetsOut = Files.newOutputStream(dir.resolve(PACKETS_FILE));
+
+            row("vdf", "SYNTHMIB", "Synthetic MIB, " + numParams + " parameters, seed " + seed, 0, 1, 0);
+            writeCalibrations();
+            createParameters();
+            writeSynthetic();
+            writePcf();
+            writeLimits();
+            writeHkPackets();
+            writeDumpPackets();
+            writeEventPackets();
+            writeCommands();
+            writeDisplays();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (BufferedWriter w : writers.values()) {
+                w.close();
+            }
+            if (packetsOut != null) {
+                packetsOut.close();
+            }
+        }
+    }
+
+    /**
+     * caf/cap, mcf, lgf and txf/txp; each calibration is shared by many parameters
+     */
+    private void writeCalibrations() {
+        numCalibrations = clamp(numParams / 200, 5, 2000);
+        for (int i = 0; i < numCalibrations; i++) {
+            String id = calibrationId("CAF", i);
+            // half of the curves have regularly spaced x points
+            int n = 8 + random.nextInt(57);
+            boolean uniform = i % 2 == 0;
+            row("caf", id, "Curve " + i, "R", "U", "D", UNITS[i % UNITS.length], n);
+            long[] xs = new long[n];
+            for (int k = 0; k < n; k++) {
+                xs[k] = uniform ? k * (65535 / (n - 1)) : random.nextInt(65536);
+            }
+            if (!uniform) {
+                xs[0] = 0;
+                Arrays.sort(xs);
+                for (int k = 1; k < n; k++) {
+                    if (xs[k] <= xs[k - 1]) {
+                        xs[k] = xs[k - 1] + 1;
+                    }
+                }
+            }
+            double y = -50 + random.nextInt(100);
+            for (int k = 0; k < n; k++) {
+                row("cap", id, xs[k], String.format("%.3f", y));
+                y += random.nextDouble() * 5;
+            }
+        }
+        for (int i = 0; i < numCalibrations; i++) {
+            row("mcf", calibrationId("MCF", i), "Polynomial " + i, String.format("%.3f", random.nextGaussian()),
+                    String.format("%.6f", 0.001 + random.nextDouble() / 100), String.format("%.3E", 1e-7), "", "");
+        }
+        for (int i = 0; i < numCalibrations; i++) {
+            row("lgf", calibrationId("LGF", i), "Thermistor " + i,
+                    String.format("%.4E", 1.1e-3 + random.nextDouble() * 1e-4), "2.3900E-4", "0", "1.5600E-7", "");
+        }
+        txfStates = new int[numCalibrations];
+        for (int i = 0; i < numCalibrations; i++) {
+            String id = calibrationId("TXF", i);
+            int n = 2 + random.nextInt(LABELS.length - 1);
+            txfStates[i] = n;
+            row("txf", id, "Status " + i, "U", n);
+            for (int k = 0; k < n; k++) {
+                row("txp", id, k, k, LABELS[k]);
+            }
+        }
+        row("txf", MODE_TXF, "Operational mode", "U", MODES.length);
+        for (int k = 0; k < MODES.length; k++) {
+            row("txp", MODE_TXF, k, k, MODES[k]);
+        }
+    }
+
+    private void createParameters() {
+        int numModes = clamp(numParams / 5000, 1, 100);
+        int numConst = numParams / 1000;
+        int numSynthetic = numParams / 100;
+        int numDeduced = clamp(numParams / 500, 2, 5000);
+        int numCounters = 4;
+        int numRegular = numParams - numModes - numConst - numSynthetic - 2 * numDeduced - numCounters - 2;
+
+        for (int i = 0; i < numModes; i++) {
+            Param p = newParam(3, 4, "Mode " + i);
+            p.categ = "S";
+            p.curtx = MODE_TXF;
+            p.nstates = MODES.length;
+            modeParams.add(p);
+            hkParams.add(p);
+        }
+        eventIdParam = newParam(3, 12, "Event identifier");
+        failureCodeParam = newParam(3, 12, "Failure code");
+        for (int i = 0; i < numCounters; i++) {
+            Param p = newParam(3, 4, "Number of items " + i);
+            p.rawMax = 3;
+            counterParams.add(p);
+        }
+
+        for (int i = 0; i < numRegular; i++) {
+            Param p = newRegularParam();
+            if (random.nextInt(10) == 0) {
+                p.pid = nextPid++;
+                pidParams.add(p);
+            }
+            hkParams.add(p);
+        }
+        for (int i = 0; i < numDeduced; i++) {
+            Param ref = newParam(3, 14, "Dumped parameter id " + i);
+            Param p = newParam(11, 0, "Dumped parameter " + i);
+            p.related = ref.name;
+            deducedParams.add(new Param[] { p, ref });
+        }
+        for (int i = 0; i < numSynthetic; i++) {
+            Param p = newParam(5, 2, "Synthetic " + i);
+            p.natur = "D";
+            syntheticParams.add(p);
+        }
+        for (int i = 0; i < numConst; i++) {
+            Param p = newParam(3, 14, "Constant " + i);
+            p.natur = "C";
+            p.parval = "42";
+        }
+    }
+
+    private Param newRegularParam() {
+        int r = random.nextInt(100);
+        Param p;
+        if (r < 20) {
+            int[] pfcs = { 4, 12, 14 };
+            p = newParam(random.nextBoolean() ? 3 : 4, pfcs[random.nextInt(pfcs.length)], "Raw integer");
+            p.kind = Kind.RAW;
+            numericParams.add(p);
+        } else if (r < 30) {
+            p = newParam(5, 1 + random.nextInt(2), "Raw float");
+            p.kind = Kind.RAW;
+            numericParams.add(p);
+        } else if (r < 42) {
+            p = newParam(3, 12, "Numerical calibration");
+            p.curtx = calibrationId("CAF", random.nextInt(numCalibrations));
+            p.kind = Kind.CALIBRATED;
+            calibratedParams.add(p);
+        } else if (r < 50) {
+            p = newParam(3, 12, "Polynomial calibration");
+            p.curtx = calibrationId("MCF", random.nextInt(numCalibrations));
+            p.kind = Kind.CALIBRATED;
+            calibratedParams.add(p);
+        } else if (r < 55) {
+            p = newParam(3, 12, "Thermistor");
+            p.curtx = calibrationId("LGF", random.nextInt(numCalibrations));
+            p.unit = "degC";
+            // 12 bits ADC, 0 is not a valid input for the logarithm
+            p.rawMin = 1;
+            p.rawMax = 4095;
+            p.kind = Kind.CALIBRATED;
+            calibratedParams.add(p);
+        } else if (r < 72) {
+            p = newParam(3, 4, "Status");
+            int txf = random.nextInt(numCalibrations);
+            p.categ = "S";
+            p.curtx = calibrationId("TXF", txf);
+            p.nstates = txfStates[txf];
+            p.kind = Kind.STATUS;
+            statusParams.add(p);
+        } else if (r < 75) {
+            p = newParam(3, 12, "Context calibration");
+            p.curtx = calibrationId("CAF", random.nextInt(numCalibrations));
+            Param mode = modeParams.get(random.nextInt(modeParams.size()));
+            for (int k = 0; k < MODES.length; k++) {
+                String select = k % 2 == 0 ? calibrationId("CAF", random.nextInt(numCalibrations))
+                        : calibrationId("MCF", random.nextInt(numCalibrations));
+                row("cur", p.name, k + 1, mode.name, k, select);
+            }
+        } else if (r < 80) {
+            p = newParam(1, 0, "Flag");
+        } else if (r < 84) {
+            p = newParam(2, 1 + random.nextInt(7), "Bit field");
+        } else if (r < 87) {
+            p = newParam(8, 8, "Text");
+            p.categ = "T";
+        } else if (r < 89) {
+            p = newParam(9, 17, "Time");
+        } else {
+            p = newParam(random.nextBoolean() ? 3 : 4, 14, "Measurement");
+            p.unit = UNITS[random.nextInt(UNITS.length)];
+            p.kind = Kind.RAW;
+            numericParams.add(p);
+        }
+        return p;
+    }
+
+    private Param newParam(int ptc, int pfc, String descr) {
+        Param p = new Param(String.format("P%07d", paramCount++), ptc, pfc, descr);
+        params.add(p);
+        return p;
+    }
+
+    private void writeSynthetic() throws IOException {
+        for (int i = 0; i < syntheticParams.size(); i++) {
+            Param p = syntheticParams.get(i);
+            String a = randomParam(numericParams).name;
+            String b = randomParam(numericParams).name;
+            String formula = switch (i % 4) {
+            case 0 -> "return " + a + " * 0.5 + " + b + ";\n";
+            case 1 -> "if (" + a + " > 100) then\n   return " + a + " - " + b + ";\nelse\n   return " + a + " + " + b
+                    + ";\nendif;\n";
+            case 2 -> "VAR1 := " + a + " * 2.5;\nreturn sin(VAR1) + abs(" + b + ");\n";
+            default -> "if (" + randomParam(modeParams).name + " == \"" + MODES[0] + "\") then\n   return " + a
+                    + ";\nelse\n   return 0;\nendif;\n";
+            };
+            Files.writeString(dir.resolve("synthetic").resolve(p.name), formula, StandardCharsets.US_ASCII);
+        }
+    }
+
+    private void writePcf() {
+        for (Param p : params) {
+            String[] cols = new String[26];
+            cols[0] = p.name;
+            cols[1] = p.descr;
+            cols[2] = p.pid == -1 ? "" : Long.toString(p.pid);
+            cols[3] = p.unit;
+            cols[4] = Integer.toString(p.ptc);
+            cols[5] = Integer.toString(p.pfc);
+            cols[8] = p.related;
+            cols[9] = p.categ;
+            cols[10] = p.natur;
+            cols[11] = p.curtx;
+            cols[13] = "N";
+            cols[15] = p.parval;
+            row("pcf", (Object[]) cols);
+        }
+    }
+
+    /**
+     * ocf/ocp: limits on 10% of the numeric and status parameters, a quarter of them depending on a mode parameter
+     */
+    private void writeLimits() {
+        for (Param p : params) {
+            if (!"R".equals(p.natur) || random.nextInt(10) != 0) {
+                continue;
+            }
+            if (p.kind == Kind.RAW || p.kind == Kind.CALIBRATED) {
+                boolean context = random.nextInt(4) == 0;
+                row("ocf", p.name, 1, context ? 4 : 2, "U", "R");
+                int pos = 1;
+                for (int k = 0; k < (context ? 2 : 1); k++) {
+                    String rlchk = context ? modeParams.get(0).name : null;
+                    String valpar = context ? Integer.toString(k) : null;
+                    row("ocp", p.name, pos++, "S", -1000, 1000, rlchk, valpar);
+                    row("ocp", p.name, pos++, "H", -2000, 2000, rlchk, valpar);
+                }
+            } else if (p.kind == Kind.STATUS) {
+                if (random.nextBoolean()) {
+                    row("ocf", p.name, 1, 1, "E", "A");
+                    row("ocp", p.name, 1, "S", LABELS[0]);
+                } else {
+                    row("ocf", p.name, 1, 1, "U", "I");
+                    row("ocp", p.name, 1, "H", 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Housekeeping packets (3,25) with 20 to 80 parameters, some of them repeated
+     */
+    private void writeHkPackets() throws IOException {
+        int numHk = hkParams.size() / 50;
+        int numApids = clamp(numHk / 200, 1, 64);
+        row("pic", 3, 25, PI1_OFFSET, PI1_WIDTH, -1, 0);
+        // an APID specific identification which is the same as the generic one
+        row("pic", 3, 25, PI1_OFFSET, PI1_WIDTH, -1, 0, FIRST_HK_APID);
+
+        int sid = 1;
+        int idx = 0;
+        while (idx < hkParams.size()) {
+            int apid = FIRST_HK_APID + (sid % numApids);
+            int n = Math.min(20 + random.nextInt(61), hkParams.size() - idx);
+            List<Param> l = hkParams.subList(idx, idx + n);
+            idx += n;
+
+            long spid = nextSpid++;
+            int bitPos = 8 * (PI1_OFFSET + 2);
+            List<long[]> entries = new ArrayList<>();
+            for (Param p : l) {
+                int size = p.sizeInBits();
+                if (size % 8 == 0) {
+                    bitPos = (bitPos + 7) & ~7;
+                }
+                int nbocc = 1;
+                int lgocc = 0;
+                if (size % 8 == 0 && random.nextInt(30) == 0) {
+                    nbocc = 2 + random.nextInt(3);
+                    lgocc = random.nextBoolean() ? 0 : 8;
+                }
+                entries.add(new long[] { bitPos, nbocc, lgocc });
+                row("plf", p.name, spid, bitPos / 8, bitPos % 8, nbocc, lgocc == 0 ? null : lgocc);
+                bitPos += nbocc * size + (nbocc - 1) * lgocc;
+            }
+            int size = (bitPos + 7) / 8;
+            pidRow(3, 25, apid, sid, spid, "Housekeeping " + sid, -1);
+            row("tpcf", spid, "HK_" + apid + "_" + sid, size);
+
+            byte[] packet = newTmPacket(apid, 3, 25, size);
+            putBits(packet, 8 * PI1_OFFSET, PI1_WIDTH, sid);
+            for (int i = 0; i < l.size(); i++) {
+                Param p = l.get(i);
+                long[] e = entries.get(i);
+                int pos = (int) e[0];
+                for (int k = 0; k < e[1]; k++) {
+                    putBits(packet, pos, p.sizeInBits(), randomRaw(p));
+                    pos += p.sizeInBits() + (int) e[2];
+                }
+            }
+            writePacket(packet);
+            sid++;
+        }
+    }
+
+    /**
+     * Parameter dump packets (3,25): 16 pairs (parameter id, value) per packet decoded as deduced parameters
+     */
+    private void writeDumpPackets() throws IOException {
+        int sid = 60000;
+        int slotSize = 32 + 64;
+        for (int i = 0; i < deducedParams.size(); i += 16) {
+            List<Param[]> l = deducedParams.subList(i, Math.min(deducedParams.size(), i + 16));
+            long spid = nextSpid++;
+            int apid = FIRST_HK_APID;
+            int offset = 8 * (PI1_OFFSET + 2);
+            int size = offset / 8 + l.size() * slotSize / 8;
+            pidRow(3, 25, apid, sid, spid, "Parameter dump " + sid, -1);
+            row("tpcf", spid, "DUMP_" + sid, size);
+
+            byte[] packet = newTmPacket(apid, 3, 25, size);
+            putBits(packet, 8 * PI1_OFFSET, PI1_WIDTH, sid);
+            for (Param[] dp : l) {
+                row("plf", dp[1].name, spid, offset / 8, 0);
+                row("plf", dp[0].name, spid, offset / 8 + 4, 0);
+                Param p = randomParam(pidParams);
+                putBits(packet, offset, 32, p.pid);
+                putBits(packet, offset + 32, p.sizeInBits(), randomRaw(p));
+                offset += slotSize;
+            }
+            writePacket(packet);
+            sid++;
+        }
+    }
+
+    /**
+     * Event packets (5,1) to (5,4) defined in the vpd table, with repeated groups of parameters
+     */
+    private void writeEventPackets() throws IOException {
+        int numEvents = clamp(numParams / 1000, 4, 500);
+        int numApids = clamp(hkParams.size() / 10000, 1, 64);
+        for (int stype = 1; stype <= 4; stype++) {
+            row("pic", 5, stype, PI1_OFFSET, PI1_WIDTH, -1, 0);
+        }
+        List<Param> simple = new ArrayList<>();
+        for (Param p : numericParams) {
+            if (p.sizeInBits() % 8 == 0) {
+                simple.add(p);
+            }
+        }
+        for (int evid = 1; evid <= numEvents; evid++) {
+            int apid = FIRST_HK_APID + evid % numApids;
+            int stype = 1 + evid % 4;
+            long spid = nextSpid++;
+
+            List<VpdItem> items = new ArrayList<>();
+            items.add(new VpdItem(eventIdParam));
+            for (int k = random.nextInt(4); k >= 0; k--) {
+                items.add(new VpdItem(randomParam(simple)));
+            }
+            // the groups use distinct counters such that the nested repeat counts do not interfere
+            if (evid % 2 == 0) {
+                VpdItem group = new VpdItem(counterParams.get(2 + random.nextInt(2)));
+                group.group = new ArrayList<>();
+                int n = 1 + random.nextInt(3);
+                for (int k = 0; k < n; k++) {
+                    group.group.add(new VpdItem(randomParam(simple)));
+                }
+                items.add(group);
+            }
+            if (evid % 5 == 0) {
+                // nested group: a repeated group containing itself a repeated parameter
+                VpdItem inner = new VpdItem(counterParams.get(1));
+                inner.group = List.of(new VpdItem(randomParam(simple)));
+                VpdItem outer = new VpdItem(counterParams.get(0));
+                outer.group = List.of(new VpdItem(randomParam(simple)), inner, new VpdItem(randomParam(simple)));
+                items.add(outer);
+            }
+            writeVpd(spid, items, new int[] { 1 });
+            pidRow(5, stype, apid, evid, spid, "Event " + evid, spid);
+            row("tpcf", spid, "EV_" + evid, null);
+
+            ByteArrayBits bits = new ByteArrayBits();
+            bits.bitPos = 8 * DFH_SIZE;
+            writeVpdValues(bits, items, evid);
+            byte[] packet = newTmPacket(apid, 5, stype, bits.size());
+            System.arraycopy(bits.data, DFH_SIZE, packet, DFH_SIZE, bits.size() - DFH_SIZE);
+            writePacket(packet);
+        }
+    }
+
+    private void writeVpd(long tpsd, List<VpdItem> items, int[] pos) {
+        for (VpdItem item : items) {
+            row("vpd", tpsd, pos[0]++, item.param.name, item.group == null ? 0 : item.numRecords() - 1, null, "N",
+                    null, "N", null, "L", "N", null, "N", 0);
+            if (item.group != null) {
+                writeVpd(tpsd, item.group, pos);
+            }
+        }
+    }
+
+    private void writeVpdValues(ByteArrayBits bits, List<VpdItem> items, int evid) {
+        for (VpdItem item : items) {
+            Param p = item.param;
+            long v = p == eventIdParam ? evid : randomRaw(p);
+            bits.put(p.sizeInBits(), v);
+            if (item.group != null) {
+                for (int k = 0; k < v; k++) {
+                    writeVpdValues(bits, item.group, evid);
+                }
+            }
+        }
+    }
+
+    private void writeCommands() throws IOException {
+        int numTcApids = clamp(numParams / 50000, 1, 8);
+        writePus1Packets(numTcApids);
+
+        row("tcp", TC_HEADER, "PUS TC header");
+        row("pcpc", "TC_APID", "Application process id", "U");
+        row("pcpc", "TC_ACK", "Acknowledge flags", "U");
+        row("pcpc", "TC_TYPE", "Service type", "U");
+        row("pcpc", "TC_STYPE", "Service subtype", "U");
+        row("pcdf", TC_HEADER, "Version", "F", 3, 0, null, "00");
+        row("pcdf", TC_HEADER, "Packet type", "F", 1, 3, null, "01");
+        row("pcdf", TC_HEADER, "Secondary header flag", "F", 1, 4, null, "01");
+        row("pcdf", TC_HEADER, "APID", "A", 11, 5, "TC_APID");
+        row("pcdf", TC_HEADER, "Sequence flags", "F", 2, 16, null, "03");
+        row("pcdf", TC_HEADER, "Sequence count", "P", 14, 18);
+        row("pcdf", TC_HEADER, "Packet length", "P", 16, 32);
+        row("pcdf", TC_HEADER, "PUS version", "F", 4, 48, null, "02");
+        row("pcdf", TC_HEADER, "Acknowledge flags", "K", 4, 52, "TC_ACK");
+        row("pcdf", TC_HEADER, "Service type", "T", 8, 56, "TC_TYPE");
+        row("pcdf", TC_HEADER, "Service subtype", "S", 8, 64, "TC_STYPE");
+        row("pcdf", TC_HEADER, "Source id", "F", 8, 72, null, "00");
+
+        int numCca = clamp(numParams / 2000, 2, 200);
+        for (int i = 0; i < numCca; i++) {
+            String id = calibrationId("CCA", i);
+            row("cca", id, "Decalibration " + i, "R", "U", "D", null, 5);
+            for (int k = 0; k < 5; k++) {
+                row("ccs", id, String.format("%.1f", k * 25.0), k * 1000);
+            }
+        }
+        int numPaf = clamp(numParams / 2000, 2, 200);
+        int[] pafStates = new int[numPaf];
+        for (int i = 0; i < numPaf; i++) {
+            String id = calibrationId("PAF", i);
+            int n = 2 + random.nextInt(LABELS.length - 1);
+            pafStates[i] = n;
+            row("paf", id, "Textual decalibration " + i, "U", n);
+            for (int k = 0; k < n; k++) {
+                row("pas", id, LABELS[k], k);
+            }
+        }
+        int numPrf = clamp(numParams / 5000, 1, 50);
+        for (int i = 0; i < numPrf; i++) {
+            String id = calibrationId("PRF", i);
+            row("prf", id, "Range " + i, "R", "U", "D", 1);
+            row("prv", id, 0, 1000 * (i + 1));
+        }
+
+        // command parameters
+        List<Arg> args = new ArrayList<>();
+        List<Arg> intArgs = new ArrayList<>();
+        int numArgs = clamp(numParams / 50, 100, 10000);
+        for (int i = 0; i < numArgs; i++) {
+            String name = String.format("CP%06d", i);
+            int r = random.nextInt(100);
+            Arg arg;
+            if (r < 55) {
+                int[][] types = { { 3, 12 }, { 3, 14 }, { 4, 14 }, { 5, 1 } };
+                int[] t = types[random.nextInt(types.length)];
+                arg = new Arg(name, t[0], t[1], "N");
+                String prf = t[0] == 3 && random.nextInt(4) == 0 ? calibrationId("PRF", random.nextInt(numPrf))
+                        : null;
+                row("cpc", name, "Argument " + i, t[0], t[1], "I", "D", null, "N", prf, null, null, "R", "0");
+                if (t[0] != 5) {
+                    intArgs.add(arg);
+                }
+            } else if (r < 75) {
+                arg = new Arg(name, 3, 4, "T");
+                int paf = random.nextInt(numPaf);
+                row("cpc", name, "Argument " + i, 3, 4, "A", "D", null, "T", null, null, calibrationId("PAF", paf),
+                        "E", LABELS[0]);
+            } else if (r < 90) {
+                arg = new Arg(name, 3, 12, "C");
+                row("cpc", name, "Argument " + i, 3, 12, "R", "D", "V", "C", null,
+                        calibrationId("CCA", random.nextInt(numCca)), null, "E", "0");
+            } else if (r < 95) {
+                arg = new Arg(name, 7, 4, "A");
+                row("cpc", name, "Argument " + i, 7, 4, "H", "H", null, "A", null, null, null, "R", null);
+            } else {
+                arg = new Arg(name, 8, 8, "N");
+                row("cpc", name, "Argument " + i, 8, 8, "A", "D", null, "N", null, null, null, "R", null);
+            }
+            args.add(arg);
+        }
+        List<Arg> counterArgs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String name = String.format("CPCNT%03d", i);
+            counterArgs.add(new Arg(name, 3, 4, "N"));
+            row("cpc", name, "Number of items " + i, 3, 4, "U", "D", null, "N", null, null, null, "R", "1");
+        }
+        Arg pidArg = new Arg("CPPID", 3, 14, "P");
+        row("cpc", pidArg.name, "Parameter id", 3, 14, "U", "D", null, "P", null, null, null, "R", null);
+
+        row("cvs", 1, "A", "R", 0, 10);
+        row("cvs", 2, "S", "R", 0, 10);
+        row("cvs", 3, "C", "R", 0, 60);
+        int cvsId = 100;
+
+        numCommands = clamp(numParams / 25, 10, 20000);
+        for (int i = 0; i < numCommands; i++) {
+            String cname = String.format("TC%06d", i);
+            int apid = FIRST_TC_APID + i % numTcApids;
+            int[] service = i < numTcApids ? new int[] { 17, 1 } : TC_SERVICES[random.nextInt(TC_SERVICES.length)];
+            boolean hipri = random.nextInt(50) == 0;
+            String[] ccf = new String[21];
+            ccf[0] = cname;
+            ccf[1] = "Command " + i;
+            ccf[2] = "Synthetic command " + i;
+            ccf[4] = random.nextInt(20) == 0 ? "Y" : "N";
+            ccf[5] = TC_HEADER;
+            ccf[6] = Integer.toString(service[0]);
+            ccf[7] = Integer.toString(service[1]);
+            ccf[8] = Integer.toString(apid);
+            ccf[15] = hipri ? "Y" : "N";
+            ccf[16] = hipri ? Integer.toString(random.nextInt(16)) : null;
+            ccf[19] = "9";
+
+            List<Arg> editable = new ArrayList<>();
+            int bit = 0;
+            int nargs = service[0] == 17 ? 0 : random.nextInt(7);
+            List<Arg> used = new ArrayList<>();
+            for (int k = 0; k < nargs; k++) {
+                int r = random.nextInt(10);
+                if (r == 0) {
+                    row("cdf", cname, "A", "Spare", 8, bit, 0, null, "R", "0A");
+                    bit += 8;
+                } else {
+                    Arg arg = randomArg(args, used);
+                    if (r == 1 && "N".equals(arg.categ) && arg.ptc == 3) {
+                        row("cdf", cname, "F", arg.name, arg.sizeInBits(), bit, 0, arg.name, "R", "7");
+                    } else {
+                        row("cdf", cname, "E", arg.name, arg.sizeInBits(), bit, 0, arg.name, "R", null);
+                        if (arg.isInteger()) {
+                            editable.add(arg);
+                        }
+                    }
+                    bit += arg.sizeInBits();
+                }
+            }
+            if (service[0] == 20 && service[1] == 1 && !pidParams.isEmpty() && random.nextInt(4) == 0) {
+                row("cdf", cname, "E", pidArg.name, 32, bit, 0, pidArg.name, "R", null);
+                used.add(pidArg);
+                bit += 32;
+            }
+            if (service[0] != 17 && random.nextInt(12) == 0) {
+                // repeated group of two arguments
+                Arg counter = randomArg(counterArgs, used);
+                row("cdf", cname, "E", counter.name, counter.sizeInBits(), bit, 2, counter.name, "R", null);
+                bit += counter.sizeInBits();
+                for (int k = 0; k < 2; k++) {
+                    Arg arg = randomArg(intArgs, used);
+                    row("cdf", cname, "E", arg.name, arg.sizeInBits(), bit, 0, arg.name, "R", null);
+                    bit += arg.sizeInBits();
+                }
+            }
+            ccf[9] = Integer.toString(used.size());
+            row("ccf", (Object[]) ccf);
+
+            if (random.nextInt(20) == 0) {
+                row("ptv", cname, randomParam(modeParams).name, "R", 0);
+            }
+            row("cvp", cname, "C", 1);
+            if (random.nextInt(3) == 0) {
+                row("cvp", cname, "C", 2);
+            }
+            row("cvp", cname, "C", 3);
+            if (random.nextInt(5) == 0) {
+                int id = cvsId++;
+                row("cvs", id, "C", "V", 2, 30);
+                writeCve(id, editable);
+                row("cvp", cname, "C", id);
+            }
+        }
+    }
+
+    /**
+     * Verification expressions on raw and engineering values, with or without tolerance, and on command arguments
+     */
+    private void writeCve(int cvsId, List<Arg> editable) {
+        int n = 1 + random.nextInt(3);
+        for (int k = 0; k < n; k++) {
+            int r = random.nextInt(3);
+            if (r == 0) {
+                Param p = randomParam(calibratedParams);
+                row("cve", cvsId, p.name, "E", String.format("%.2f", random.nextDouble() * 100), "0.5", "B");
+            } else if (r == 1) {
+                Param p = randomParam(statusParams);
+                row("cve", cvsId, p.name, "E", LABELS[random.nextInt(p.nstates)], null, "B");
+            } else {
+                Param p = randomParam(numericParams);
+                row("cve", cvsId, p.name, "R", p.ptc == 5 ? "1.5" : "1", null, "B");
+            }
+        }
+        if (!editable.isEmpty() && random.nextBoolean()) {
+            Param p = randomParam(numericParams);
+            row("cve", cvsId, p.name, "C", editable.get(random.nextInt(editable.size())).name, null, "B");
+        }
+    }
+
+    /**
+     * PUS1 verification reports and the PUS17 connection test report for each TC APID
+     */
+    private void writePus1Packets(int numTcApids) throws IOException {
+        for (int i = 0; i < numTcApids; i++) {
+            int apid = FIRST_TC_APID + i;
+            for (int stype : new int[] { 1, 2, 7, 8 }) {
+                long spid = nextSpid++;
+                boolean failure = stype % 2 == 0;
+                int size = DFH_SIZE + (failure ? 6 : 4);
+                pidRow(1, stype, apid, null, spid, "Verification report (1," + stype + ")", -1);
+                row("tpcf", spid, "PUS1_" + apid + "_" + stype, size);
+                if (failure) {
+                    row("plf", failureCodeParam.name, spid, DFH_SIZE + 4, 0);
+                }
+                byte[] packet = newTmPacket(apid, 1, stype, size);
+                putBits(packet, 8 * DFH_SIZE, 16, 0x1800 | apid);
+                putBits(packet, 8 * DFH_SIZE + 16, 16, 0xC000 | random.nextInt(0x4000));
+                if (failure) {
+                    putBits(packet, 8 * (DFH_SIZE + 4), 16, 1 + random.nextInt(10));
+                }
+                writePacket(packet);
+            }
+            long spid = nextSpid++;
+            pidRow(17, 2, apid, null, spid, "Connection test report", -1);
+            row("tpcf", spid, "PUS17_" + apid, DFH_SIZE);
+            writePacket(newTmPacket(apid, 17, 2, DFH_SIZE));
+        }
+    }
+
+    private void writeDisplays() {
+        int numDisplays = Math.max(1, hkParams.size() / 640);
+        for (int i = 0; i < numDisplays; i++) {
+            String name = String.format("AND%05d", i);
+            row("dpf", name, 3, "Display " + i);
+            for (int k = 0; k < 64; k++) {
+                row("dpc", name, randomParam(hkParams).name, k);
+            }
+        }
+    }
+
+    private void pidRow(int type, int stype, int apid, Integer pi1, long spid, String descr, long tpsd) {
+        row("pid", type, stype, apid, pi1, null, spid, descr, null, tpsd == -1 ? null : tpsd, DFH_SIZE, null, null,
+                "Y", "N", "N", null);
+    }
+
+    private byte[] newTmPacket(int apid, int type, int stype, int size) {
+        byte[] packet = new byte[size];
+        int seq = seqCounts.merge(apid, 1, Integer::sum);
+        putBits(packet, 0, 16, 0x0800 | apid);
+        putBits(packet, 16, 16, 0xC000 | (seq & 0x3FFF));
+        putBits(packet, 32, 16, size - 7);
+        packet[6] = 0x10;
+        packet[TYPE_OFFSET] = (byte) type;
+        packet[SUBTYPE_OFFSET] = (byte) stype;
+        putBits(packet, 80, 32, 1_700_000_000L + seq);
+        return packet;
+    }
+
+    private void writePacket(byte[] packet) throws IOException {
+        packetsOut.write(packet);
+        numPackets++;
+    }
+
+    long randomRaw(Param p) {
+        if (p.nstates > 0) {
+            return random.nextInt(p.nstates);
+        }
+        if (p.rawMax >= 0) {
+            return p.rawMin + random.nextInt((int) (p.rawMax - p.rawMin + 1));
+        }
+        if (p.ptc == 5) {
+            double d = random.nextGaussian() * 100;
+            return p.pfc == 1 ? Float.floatToRawIntBits((float) d) & 0xFFFFFFFFL : Double.doubleToRawLongBits(d);
+        } else if (p.ptc == 8) {
+            long v = 0;
+            for (int i = 0; i < p.pfc; i++) {
+                v = (v << 8) | ('A' + random.nextInt(26));
+            }
+            return v;
+        }
+        int size = p.sizeInBits();
+        return size == 64 ? random.nextLong() : random.nextLong() & ((1L << size) - 1);
+    }
+
+    static void putBits(byte[] buf, int bitPos, int numBits, long value) {
+        for (int i = 0; i < numBits; i++) {
+            if (((value >>> (numBits - 1 - i)) & 1) != 0) {
+                int b = bitPos + i;
+                buf[b >> 3] |= (byte) (0x80 >>> (b & 7));
+            }
+        }
+    }
+
+    private <T> T randomParam(List<T> l) {
+        return l.get(random.nextInt(l.size()));
+    }
+
+    // returns an argument not yet used in the command
+    private Arg randomArg(List<Arg> l, List<Arg> used) {
+        while (true) {
+            Arg arg = l.get(random.nextInt(l.size()));
+            if (!used.contains(arg)) {
+                used.add(arg);
+                return arg;
+            }
+        }
+    }
+
+    private void row(String table, Object... cols) {
+        try {
+            BufferedWriter w = writers.get(table);
+            for (int i = 0; i < cols.length; i++) {
+                if (i > 0) {
+                    w.write('\t');
+                }
+                if (cols[i] != null) {
+                    w.write(cols[i].toString());
+                }
+            }
+            w.write('\n');
+            rowCounts.merge(table, 1, Integer::sum);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String calibrationId(String prefix, int idx) {
+        return String.format("%s%05d", prefix, idx);
+    }
+
+    static int clamp(int x, int min, int max) {
+        return Math.max(min, Math.min(max, x));
+    }
+
+    static class Param {
+        final String name;
+        final int ptc;
+        final int pfc;
+        final String descr;
+        String categ = "N";
+        String natur = "R";
+        String curtx;
+        String unit;
+        String related;
+        String parval;
+        long pid = -1;
+        // the raw values of the status parameters are 0..nstates-1
+        int nstates;
+        long rawMin = 0;
+        long rawMax = -1;
+        Kind kind = Kind.OTHER;
+
+        Param(String name, int ptc, int pfc, String descr) {
+            this.name = name;
+            this.ptc = ptc;
+            this.pfc = pfc;
+            this.descr = descr;
+        }
+
+        int sizeInBits() {
+            return switch (ptc) {
+            case 1 -> 1;
+            case 2 -> pfc;
+            case 3, 4 -> pfc < 13 ? pfc + 4 : pfc == 13 ? 24 : pfc == 14 ? 32 : pfc == 15 ? 48 : 64;
+            case 5 -> pfc == 1 ? 32 : 64;
+            case 8 -> 8 * pfc;
+            case 9 -> 48;
+            default -> throw new IllegalStateException("No size for (" + ptc + ", " + pfc + ")");
+            };
+        }
+    }
+
+    enum Kind {
+        RAW, CALIBRATED, STATUS, OTHER
+    }
+
+    static class Arg {
+        final String name;
+        final int ptc;
+        final int pfc;
+        final String categ;
+
+        Arg(String name, int ptc, int pfc, String categ) {
+            this.name = name;
+            this.ptc = ptc;
+            this.pfc = pfc;
+            this.categ = categ;
+        }
+
+        boolean isInteger() {
+            return (ptc == 3 || ptc == 4) && "N".equals(categ);
+        }
+
+        int sizeInBits() {
+            return switch (ptc) {
+            case 3, 4 -> pfc == 4 ? 8 : pfc == 12 ? 16 : 32;
+            case 5 -> 32;
+            case 7, 8 -> 8 * pfc;
+            default -> throw new IllegalStateException("No size for (" + ptc + ", " + pfc + ")");
+            };
+        }
+    }
+
+    // a parameter of a variable packet; if group is not null, the parameter gives the number of repetitions of the
+    // group following it
+    static class VpdItem {
+        final Param param;
+        List<VpdItem> group;
+
+        VpdItem(Param param) {
+            this.param = param;
+        }
+
+        int numRecords() {
+            int n = 1;
+            if (group != null) {
+                for (VpdItem item : group) {
+                    n += item.numRecords();
+                }
+            }
+            return n;
+        }
+    }
+
+    // growable bit buffer used for the variable packets
+    static class ByteArrayBits {
+        byte[] data = new byte[256];
+        int bitPos = 0;
+
+        void put(int numBits, long value) {
+            while (data.length * 8 < bitPos + numBits) {
+                data = Arrays.copyOf(data, 2 * data.length);
+            }
+            putBits(data, bitPos, numBits, value);
+            bitPos += numBits;
+        }
+
+        int size() {
+            return (bitPos + 7) / 8;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.YConfiguration;
+import org.yamcs.scos2k.MibLoader;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.SpaceSystem;
+
+/**
+ * Measures the loading of a MIB written by the {@link MibGenerator}.
+ * <p>
+ * The MIB is generated in a temporary directory before the measurements. Use {@code -p numParams=500000} to reproduce
+ * the scale of a large mission.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class MibLoadBenchmark {
+
+    @Param({ "10000", "100000" })
+    int numParams;
+
+    @Param({ "false", "true" })
+    boolean parallelIngestion;
+
+    Path dir;
+    Map<String, Object> config;
+
+    @Setup
+    public void setup() throws IOException {
+        TimeEncoding.setUp();
+        dir = Files.createTempDirectory("mib");
+        new MibGenerator(dir, numParams, 0).generate();
+        config = MibGenerator.loaderConfig(dir);
+        config.put("parallelIngestion", parallelIngestion);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deleteDir(dir);
+    }
+
+    @Benchmark
+    public SpaceSystem load() {
+        return new MibLoader(YConfiguration.wrap(config)).load();
+    }
+
+    static void deleteDir(Path dir) throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) s.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.janino.SimpleCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.RawEngValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.scos2k.ol.GlobalVariables;
+import org.yamcs.scos2k.ol.OLCompilationUnit;
+import org.yamcs.scos2k.ol.OLCompiler;
+import org.yamcs.scos2k.ol.OLEvaluator;
+import org.yamcs.scos2k.ol.OLParser;
+import org.yamcs.scos2k.ol.OLParserConstants;
+import org.yamcs.scos2k.ol.OLParserTokenManager;
+import org.yamcs.scos2k.ol.SimpleCharStream;
+import org.yamcs.scos2k.ol.Token;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterType;
+import org.yamcs.xtce.SpaceSystem;
+
+/**
+ * Measures the stages of the OL formula processing for a few representative formula shapes:
+ * <ul>
+ * <li>tokenize - the lexical analysis only</li>
+ * <li>generateCode - parsing and Java code generation; they are done in one pass by the parser actions</li>
+ * <li>compile - compilation of the generated code with Janino</li>
+ * <li>evaluate/evaluateTyped - steady state evaluation through the boxing {@link OLEvaluator#evaluate} respectively
+ * through the typed evaluate method used by the executor</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OLBenchmark {
+    static final String OUTPUT = "S";
+
+    static final Map<String, String> FORMULAS = new HashMap<>();
+    static {
+        FORMULAS.put("arithmetic", """
+                VAR1 := A * 3 + B / 2.5;
+                VAR2 := (A - 7) * (B + 1.25);
+                return VAR1 + VAR2 * 0.5 - (A % 7) + C;
+                """);
+        FORMULAS.put("trig", """
+                return sin(B) * cos(B) + arctan(B / 4.0) + abs(B - A) + tan(B / 8) ** 2;
+                """);
+        FORMULAS.put("enum", """
+                if (MODE == "NOMINAL") then
+                   return A;
+                else
+                   if (MODE == "SAFE") then
+                      return A + C;
+                   else
+                      if (MODE == "SURVIVAL") then return 0; else return MODE; endif;
+                   endif;
+                endif;
+                """);
+        FORMULAS.put("gvar", """
+                GVAR_SUM := GVAR_SUM + B;
+                GVAR_CNT := GVAR_CNT + 1;
+                GVAR_MIN := GVAR_MIN * 0.99 + B * 0.01;
+                GVAR_AVG := GVAR_SUM / GVAR_CNT;
+                return GVAR_AVG + GVAR_MIN;
+                """);
+        StringBuilder sb = new StringBuilder();
+        int depth = 10;
+        for (int i = 0; i < depth; i++) {
+            sb.append("if (A < ").append(10 * (i + 1)).append(") then return ").append(i).append(" * B; else\n");
+        }
+        sb.append("return B;\n");
+        for (int i = 0; i < depth; i++) {
+            sb.append("endif;\n");
+        }
+        FORMULAS.put("ifelse", sb.toString());
+    }
+
+    @Param({ "arithmetic", "trig", "enum", "gvar", "ifelse" })
+    String shape;
+
+    String formula;
+    Map<String, ParameterType> types = new HashMap<>();
+    String code;
+    OLEvaluator evaluator;
+    GlobalVariables globalVars = new GlobalVariables();
+    List<RawEngValue> inputs;
+
+    @Setup
+    public void setup() throws Exception {
+        formula = FORMULAS.get(shape);
+
+        SpaceSystem ss = new SpaceSystem("MIB");
+        ss.setQualifiedName("/MIB");
+        Map<String, ParameterValue> values = new HashMap<>();
+        Parameter a = XtceTypes.addParameter(ss, "A", XtceTypes.uintType("A_type", 16));
+        values.put("A", pv(a, ValueUtility.getUint32Value(55), ValueUtility.getUint32Value(55)));
+        Parameter b = XtceTypes.addParameter(ss, "B", XtceTypes.floatType("B_type", 32));
+        values.put("B", pv(b, ValueUtility.getFloatValue(1.5f), ValueUtility.getFloatValue(1.5f)));
+        Parameter c = XtceTypes.addParameter(ss, "C", XtceTypes.intType("C_type", 32));
+        values.put("C", pv(c, ValueUtility.getSint32Value(-3), ValueUtility.getSint32Value(-3)));
+        Parameter mode = XtceTypes.addParameter(ss, "MODE",
+                XtceTypes.enumType("MODE_type", "NOMINAL", "SAFE", "SURVIVAL", "TEST"));
+        values.put("MODE", pv(mode, ValueUtility.getUint32Value(1), ValueUtility.getStringValue("SAFE")));
+        ParameterType outType = "enum".equals(shape) ? XtceTypes.intType("S_type", 32)
+                : XtceTypes.floatType("S_type", 64);
+        XtceTypes.addParameter(ss, OUTPUT, outType);
+        for (Parameter p : ss.getParameters()) {
+            types.put(p.getName(), p.getParameterType());
+        }
+
+        OLParser parser = new OLParser(new StringReader(formula));
+        code = parser.generateCodeStandalone(OUTPUT, types::get);
+        evaluator = new OLCompilationUnit(compile(code)).newEvaluator(OLCompiler.getClassName(OUTPUT));
+
+        RawEngValue[] inputArray = parser.getInputParameters().stream().map(values::get)
+                .toArray(RawEngValue[]::new);
+        inputs = Arrays.asList(inputArray);
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole bh) {
+        OLParserTokenManager tm = new OLParserTokenManager(new SimpleCharStream(new StringReader(formula)));
+        Token t;
+        while ((t = tm.getNextToken()).kind != OLParserConstants.EOF) {
+            bh.consume(t);
+        }
+    }
+
+    @Benchmark
+    public String generateCode() throws Exception {
+        OLParser parser = new OLParser(new StringReader(formula));
+        return parser.generateCodeStandalone(OUTPUT, types::get);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 50)
+    public Map<String, byte[]> compile() throws Exception {
+        return compile(code);
+    }
+
+    @Benchmark
+    public Object evaluate() {
+        return evaluator.evaluate(globalVars, inputs);
+    }
+
+    @Benchmark
+    public void evaluateTyped(Blackhole bh) {
+        if ("enum".equals(shape)) {
+            bh.consume(evaluator.evaluateLong(globalVars, inputs));
+        } else {
+            bh.consume(evaluator.evaluateDouble(globalVars, inputs));
+        }
+    }
+
+    static Map<String, byte[]> compile(String code) throws Exception {
+        SimpleCompiler compiler = new SimpleCompiler();
+        compiler.setParentClassLoader(OLEvaluator.class.getClassLoader());
+        compiler.cook(code);
+        return new HashMap<>(compiler.getBytecodes());
+    }
+
+    static ParameterValue pv(Parameter p, Value raw, Value eng) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setRawValue(raw);
+        pv.setEngValue(eng);
+        return pv;
+    }
+}
@@ -0,0 +1,110 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.ProcessorConfig;
+import org.yamcs.algorithms.AlgorithmExecutionContext;
+import org.yamcs.algorithms.AlgorithmExecutionResult;
+import org.yamcs.events.EventProducerFactory;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.mdb.ProcessorData;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.scos2k.ol.OLAlgorithm;
+import org.yamcs.scos2k.ol.OLExecutor;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.InputParameter;
+import org.yamcs.xtce.OutputParameter;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.ParameterType;
+import org.yamcs.xtce.SpaceSystem;
+
+/**
+ * Measures the execution of a synthetic parameter formula by the {@link OLExecutor}.
+ * <p>
+ * Run with {@code -prof gc} to see the bytes allocated per execution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OLExecutorBenchmark {
+
+    /**
+     * the encoding of the synthetic parameter: uint32, int64, float32 or float64
+     */
+    @Param({ "uint32", "int64", "float32", "float64" })
+    String output;
+
+    OLExecutor executor;
+    ProcessingContext pctx;
+
+    @Setup
+    public void setup() throws Exception {
+        TimeEncoding.setUp();
+        EventProducerFactory.setMockup(false);
+
+        SpaceSystem root = new SpaceSystem("");
+        root.setQualifiedName("/");
+        SpaceSystem mib = new SpaceSystem("MIB");
+        mib.setQualifiedName("/MIB");
+        root.addSpaceSystem(mib);
+
+        Parameter a = XtceTypes.addParameter(mib, "A", XtceTypes.uintType("A_type", 16));
+        Parameter b = XtceTypes.addParameter(mib, "B", XtceTypes.floatType("B_type", 32));
+        ParameterType outType = switch (output) {
+        case "uint32" -> XtceTypes.uintType("S_type", 32);
+        case "int64" -> XtceTypes.intType("S_type", 64);
+        case "float32" -> XtceTypes.floatType("S_type", 32);
+        case "float64" -> XtceTypes.floatType("S_type", 64);
+        default -> throw new IllegalArgumentException(output);
+        };
+        Parameter s = XtceTypes.addParameter(mib, "S", outType);
+
+        OLAlgorithm alg = new OLAlgorithm("S");
+        alg.setQualifiedName("/MIB/S");
+        alg.setAlgorithmText("if (A > 10) then return A * 3 + B; else return A - B; endif;");
+        InputParameter ipa = new InputParameter(new ParameterInstanceRef(a));
+        InputParameter ipb = new InputParameter(new ParameterInstanceRef(b));
+        alg.setInputSet(Arrays.asList(ipa, ipb));
+        alg.setOutputList(Arrays.asList(new OutputParameter(s)));
+        mib.addAlgorithm(alg);
+
+        Mdb mdb = new Mdb(root, new HashMap<>());
+        mdb.buildIndexMaps();
+        ProcessorData pdata = new ProcessorData("bench", "bench", mdb, new ProcessorConfig());
+        AlgorithmExecutionContext execCtx = new AlgorithmExecutionContext("bench", pdata, 1000);
+        executor = new OLExecutor(alg, execCtx);
+
+        ParameterValue pva = new ParameterValue(a);
+        pva.setRawValue(ValueUtility.getUint32Value(25));
+        pva.setEngValue(ValueUtility.getUint32Value(25));
+        ParameterValue pvb = new ParameterValue(b);
+        pvb.setRawValue(ValueUtility.getFloatValue(1.5f));
+        pvb.setEngValue(ValueUtility.getFloatValue(1.5f));
+        executor.update(ProcessingContext.createForTestTm(pva, pvb));
+        pctx = ProcessingContext.createForTestTm();
+    }
+
+    @Benchmark
+    public AlgorithmExecutionResult execute() {
+        return executor.execute(1000, 1000, pctx);
+    }
+}
@@ -0,0 +1,112 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.ProcessorConfig;
+import org.yamcs.YConfiguration;
+import org.yamcs.events.EventProducerFactory;
+import org.yamcs.mdb.ContainerProcessingResult;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.MdbFactory;
+import org.yamcs.mdb.ProcessorData;
+import org.yamcs.mdb.XtceTmExtractor;
+import org.yamcs.scos2k.MibLoader;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.SequenceContainer;
+
+/**
+ * Measures the decoding of the packets written by the {@link MibGenerator}: the packets are processed one after the
+ * other by the Yamcs {@link XtceTmExtractor} extracting all the parameters.
+ * <p>
+ * The decodeCompiled benchmark uses the {@link CompiledTmExtractor} (generated code for the fixed packets) and the
+ * Yamcs extractor only for the packets it cannot decode.
+ * <p>
+ * The time reported is the average per packet.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class PacketDecodeBenchmark {
+
+    @Param({ "10000" })
+    int numParams;
+
+    Path dir;
+    XtceTmExtractor extractor;
+    CompiledTmExtractor compiledExtractor;
+    SequenceContainer rootContainer;
+    byte[][] packets;
+    int idx = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        TimeEncoding.setUp();
+        EventProducerFactory.setMockup(false);
+        dir = Files.createTempDirectory("mib");
+        new MibGenerator(dir, numParams, 0).generate();
+
+        Map<String, Object> loader = new HashMap<>();
+        loader.put("type", MibLoader.class.getName());
+        loader.put("args", MibGenerator.loaderConfig(dir));
+        Mdb mdb = MdbFactory.createInstance(Arrays.asList(YConfiguration.wrap(loader)), false, false);
+        rootContainer = mdb.getSequenceContainer("/MIB/ccsds");
+        ProcessorData pdata = new ProcessorData("bench", mdb, new ProcessorConfig());
+        extractor = new XtceTmExtractor(mdb, pdata);
+        extractor.provideAll();
+        compiledExtractor = new CompiledTmExtractor(pdata);
+
+        List<byte[]> l = MibGenerator.readPackets(dir);
+        packets = l.toArray(new byte[0][]);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        MibLoadBenchmark.deleteDir(dir);
+    }
+
+    @Benchmark
+    public ContainerProcessingResult decode() {
+        return extractor.processPacket(nextPacket(), TimeEncoding.POSITIVE_INFINITY, TimeEncoding.POSITIVE_INFINITY,
+                0, rootContainer);
+    }
+
+    @Benchmark
+    public ContainerProcessingResult decodeCompiled() {
+        byte[] packet = nextPacket();
+        ContainerProcessingResult result = compiledExtractor.processPacket(packet, TimeEncoding.POSITIVE_INFINITY,
+                TimeEncoding.POSITIVE_INFINITY, 0);
+        if (result == null) {
+            result = extractor.processPacket(packet, TimeEncoding.POSITIVE_INFINITY, TimeEncoding.POSITIVE_INFINITY, 0,
+                    rootContainer);
+        }
+        return result;
+    }
+
+    private byte[] nextPacket() {
+        byte[] packet = packets[idx];
+        idx = (idx + 1) % packets.length;
+        return packet;
+    }
+}
@@ -0,0 +1,119 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.ContainerExtractionResult;
+import org.yamcs.YConfiguration;
+import org.yamcs.events.EventProducerFactory;
+import org.yamcs.mdb.ContainerProcessingResult;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.MdbFactory;
+import org.yamcs.mdb.XtceTmExtractor;
+import org.yamcs.scos2k.MibLoader;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.xtce.SequenceContainer;
+
+/**
+ * Compares the two ways of finding the SPID container of the packets written by the {@link MibGenerator}:
+ * <ul>
+ * <li>restriction - the Yamcs extractor subscribed to all the containers but to no parameter; it extracts only the
+ * parameters needed to evaluate the restriction criteria of the containers derived one from the other.</li>
+ * <li>index - the hash lookups of the {@link PacketIdentifier}.</li>
+ * </ul>
+ * The housekeeping packets are spread over APIDs with about 150 to 200 SIDs each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class PacketIdentificationBenchmark {
+
+    @Param({ "10000", "100000" })
+    int numParams;
+
+    Path dir;
+    XtceTmExtractor extractor;
+    PacketIdentifier identifier;
+    SequenceContainer rootContainer;
+    byte[][] packets;
+    int idx = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        TimeEncoding.setUp();
+        EventProducerFactory.setMockup(false);
+        dir = Files.createTempDirectory("mib");
+        new MibGenerator(dir, numParams, 0).generate();
+
+        Map<String, Object> loader = new HashMap<>();
+        loader.put("type", MibLoader.class.getName());
+        loader.put("args", MibGenerator.loaderConfig(dir));
+        Mdb mdb = MdbFactory.createInstance(Arrays.asList(YConfiguration.wrap(loader)), false, false);
+        rootContainer = mdb.getSequenceContainer("/MIB/ccsds");
+        extractor = new XtceTmExtractor(mdb);
+        for (SequenceContainer sc : mdb.getSequenceContainers()) {
+            extractor.startProviding(sc);
+        }
+        identifier = PacketIdentifier.create(mdb);
+
+        List<byte[]> l = MibGenerator.readPackets(dir);
+        packets = l.toArray(new byte[0][]);
+
+        // both methods have to find the same container
+        for (byte[] packet : packets) {
+            SequenceContainer sc = identifier.identify(packet);
+            List<ContainerExtractionResult> cl = restriction(packet).getContainerResult();
+            if (sc == null || cl.stream().noneMatch(r -> r.getContainer() == sc)) {
+                throw new IllegalStateException("Different identification for packet "
+                        + Arrays.toString(Arrays.copyOf(packet, 20)) + ": index: " + sc + " restriction: " + cl);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        MibLoadBenchmark.deleteDir(dir);
+    }
+
+    @Benchmark
+    public ContainerProcessingResult restriction() {
+        return restriction(nextPacket());
+    }
+
+    @Benchmark
+    public SequenceContainer index() {
+        return identifier.identify(nextPacket());
+    }
+
+    private ContainerProcessingResult restriction(byte[] packet) {
+        return extractor.processPacket(packet, TimeEncoding.POSITIVE_INFINITY, TimeEncoding.POSITIVE_INFINITY, 0,
+                rootContainer);
+    }
+
+    private byte[] nextPacket() {
+        byte[] packet = packets[idx];
+        idx = (idx + 1) % packets.length;
+        return packet;
+    }
+}
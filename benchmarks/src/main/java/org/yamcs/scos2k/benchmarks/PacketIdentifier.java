@@ -0,0 +1,260 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.yamcs.logging.Log;
+import org.yamcs.utils.IntHashSet;
+import org.yamcs.xtce.ANDedConditions;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.BooleanExpression;
+import org.yamcs.xtce.Comparison;
+import org.yamcs.xtce.ComparisonList;
+import org.yamcs.xtce.Condition;
+import org.yamcs.xtce.MatchCriteria;
+import org.yamcs.xtce.OperatorType;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterEntry;
+import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.SequenceContainer;
+import org.yamcs.xtce.SequenceEntry;
+import org.yamcs.xtce.SequenceEntry.ReferenceLocationType;
+import org.yamcs.xtce.XtceDb;
+
+/**
+ * Identifies the SCOS-2000 packet (SPID) of a telemetry packet with two hash lookups instead of evaluating the
+ * restriction criteria of the containers one by one.
+ * <p>
+ * The MIB loader translates the PID/PIC tables into containers: one container per (apid, type, subtype) with the
+ * PI1/PI2 parameters located as specified in the PIC table and, if more than one packet is defined for the (apid, type,
+ * subtype), one derived container per SPID with a restriction on the PI1/PI2 values. When extracting a packet, the
+ * restriction criteria of the derived containers are checked one after the other, which is linear in the number of
+ * SPIDs sharing the (apid, type, subtype).
+ * <p>
+ * This class builds from the same containers a map (apid, type, subtype) -&gt; PI1/PI2 location and a map (PI1, PI2)
+ * -&gt; SPID container such that the container can be found in constant time. The index is built from the MDB rather
+ * than from the MIB tables, such that it can be used also when the MDB is restored from the Yamcs cache.
+ * <p>
+ * The container returned by {@link #identify(byte[])} can be given as start container to the Yamcs extractor; note
+ * that in that case only the entries of the SPID container are extracted, not the header entries of its base
+ * containers.
+ * <p>
+ * The index is used by the {@link PacketIdentificationBenchmark} and the {@link CompiledTmExtractor} only: Yamcs
+ * offers no hook to replace the container selection of its extractor, so it is not part of the plugin.
+ */
+public class PacketIdentifier {
+    static final Log log = new Log(PacketIdentifier.class);
+
+    // names of the container and parameters created by the MIB loader for the packet headers
+    static final String CCSDS_PUS_CONTAINER_NAME = "ccsds-pus";
+    static final String PARA_NAME_APID = "ccsds_apid";
+    static final String PARA_NAME_PUS_TYPE = "pus_type";
+    static final String PARA_NAME_PUS_STYPE = "pus_stype";
+
+    final int apidOffset;
+    final int typeOffset;
+    final int stypeOffset;
+    final IntHashSet nonPusApids = new IntHashSet();
+    final Map<Integer, PacketGroup> groups = new HashMap<>();
+
+    /**
+     * All the packets sharing the same (apid, type, subtype)
+     */
+    static class PacketGroup {
+        final SequenceContainer container;
+        // location (in bits from the beginning of the packet) and width in bits of pi1 and pi2; width = 0 if not used
+        int pi1Offset, pi1Width;
+        int pi2Offset, pi2Width;
+        final Map<Long, SequenceContainer> spidContainers = new HashMap<>();
+
+        PacketGroup(SequenceContainer container) {
+            this.container = container;
+        }
+    }
+
+    private PacketIdentifier(SequenceContainer ccsdsPus) {
+        SequenceContainer ccsds = ccsdsPus.getBaseContainer();
+        apidOffset = findEntry(ccsds, PARA_NAME_APID).getLocationInContainerInBits();
+        typeOffset = findEntry(ccsdsPus, PARA_NAME_PUS_TYPE).getLocationInContainerInBits();
+        stypeOffset = findEntry(ccsdsPus, PARA_NAME_PUS_STYPE).getLocationInContainerInBits();
+
+        MatchCriteria mc = ccsdsPus.getRestrictionCriteria();
+        if (mc instanceof ANDedConditions ac) {
+            for (BooleanExpression be : ac.getExpressionList()) {
+                if (be instanceof Condition c && c.getComparisonOperator() == OperatorType.INEQUALITY) {
+                    nonPusApids.add(Integer.parseInt(c.getRightValue()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the index from the containers created by the MIB loader.
+     *
+     * @throws IllegalArgumentException
+     *             if the MDB does not contain the MIB PUS root container
+     */
+    public static PacketIdentifier create(XtceDb xtcedb) {
+        SequenceContainer ccsdsPus = null;
+        for (SequenceContainer sc : xtcedb.getSequenceContainers()) {
+            if (CCSDS_PUS_CONTAINER_NAME.equals(sc.getName())) {
+                ccsdsPus = sc;
+                break;
+            }
+        }
+        if (ccsdsPus == null) {
+            throw new IllegalArgumentException("No " + CCSDS_PUS_CONTAINER_NAME + " container found in the MDB");
+        }
+        PacketIdentifier pi = new PacketIdentifier(ccsdsPus);
+        for (SequenceContainer level1 : xtcedb.getInheritingContainers(ccsdsPus)) {
+            pi.addGroup(xtcedb, level1);
+        }
+        return pi;
+    }
+
+    private void addGroup(XtceDb xtcedb, SequenceContainer level1) {
+        int apid = -1, type = -1, stype = -1;
+        if (level1.getRestrictionCriteria() instanceof ComparisonList cl) {
+            for (Comparison c : cl.getComparisonList()) {
+                String pname = ((ParameterInstanceRef) c.getRef()).getParameter().getName();
+                switch (pname) {
+                case PARA_NAME_APID -> apid = Integer.parseInt(c.getStringValue());
+                case PARA_NAME_PUS_TYPE -> type = Integer.parseInt(c.getStringValue());
+                case PARA_NAME_PUS_STYPE -> stype = Integer.parseInt(c.getStringValue());
+                }
+            }
+        }
+        if (apid == -1 || type == -1 || stype == -1) {
+            log.debug("Container {} is not identified by (apid, type, subtype), ignoring", level1.getName());
+            return;
+        }
+        PacketGroup group = new PacketGroup(level1);
+        groups.put(key(apid, type, stype), group);
+
+        List<SequenceContainer> children = xtcedb.getInheritingContainers(level1);
+        if (children == null) {
+            return;
+        }
+        for (SequenceContainer seq : children) {
+            if (!(seq.getRestrictionCriteria() instanceof ComparisonList cl)) {
+                // no PIC record found when loading the MIB; the extractor will match all these containers
+                log.debug("Container {} has no PI1/PI2 restriction, ignoring", seq.getName());
+                continue;
+            }
+            long pi1 = 0, pi2 = 0;
+            int n = 0;
+            for (Comparison c : cl.getComparisonList()) {
+                Parameter p = ((ParameterInstanceRef) c.getRef()).getParameter();
+                ParameterEntry pe = findEntry(level1, p.getName());
+                int width = ((BaseDataType) p.getParameterType()).getEncoding().getSizeInBits();
+                long v = Long.parseLong(c.getStringValue());
+                if (n == 0) {
+                    group.pi1Offset = pe.getLocationInContainerInBits();
+                    group.pi1Width = width;
+                    pi1 = v;
+                } else {
+                    group.pi2Offset = pe.getLocationInContainerInBits();
+                    group.pi2Width = width;
+                    pi2 = v;
+                }
+                n++;
+            }
+            group.spidContainers.put(piKey(pi1, pi2), seq);
+        }
+    }
+
+    /**
+     * Returns the container corresponding to the SPID of the packet or null if the packet cannot be identified.
+     * <p>
+     * If there is only one SPID for the (apid, type, subtype) of the packet, the container of the (apid, type,
+     * subtype) is returned.
+     */
+    public SequenceContainer identify(byte[] packet) {
+        int bitLength = 8 * packet.length;
+        if (stypeOffset + 8 > bitLength || typeOffset + 8 > bitLength) {
+            return null;
+        }
+        int apid = (int) getBits(packet, apidOffset, 11);
+        if (nonPusApids.contains(apid)) {
+            return null;
+        }
+        int type = (int) getBits(packet, typeOffset, 8);
+        int stype = (int) getBits(packet, stypeOffset, 8);
+        PacketGroup group = groups.get(key(apid, type, stype));
+        if (group == null) {
+            return null;
+        }
+        if (group.spidContainers.isEmpty()) {
+            return group.container;
+        }
+        long pi1 = 0, pi2 = 0;
+        if (group.pi1Width > 0) {
+            if (group.pi1Offset + group.pi1Width > bitLength) {
+                return null;
+            }
+            pi1 = getBits(packet, group.pi1Offset, group.pi1Width);
+        }
+        if (group.pi2Width > 0) {
+            if (group.pi2Offset + group.pi2Width > bitLength) {
+                return null;
+            }
+            pi2 = getBits(packet, group.pi2Offset, group.pi2Width);
+        }
+        return group.spidContainers.get(piKey(pi1, pi2));
+    }
+
+    /**
+     * the containers returned by {@link #identify(byte[])}, one per SPID
+     */
+    List<SequenceContainer> getSpidContainers() {
+        List<SequenceContainer> l = new ArrayList<>();
+        for (PacketGroup group : groups.values()) {
+            if (group.spidContainers.isEmpty()) {
+                l.add(group.container);
+            } else {
+                l.addAll(group.spidContainers.values());
+            }
+        }
+        return l;
+    }
+
+    /**
+     * the number of (apid, type, subtype) combinations in the index
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    private static ParameterEntry findEntry(SequenceContainer seq, String pname) {
+        for (SequenceEntry se : seq.getEntryList()) {
+            if (se instanceof ParameterEntry pe && pe.getParameter().getName().equals(pname)
+                    && pe.getReferenceLocation() == ReferenceLocationType.CONTAINER_START) {
+                return pe;
+            }
+        }
+        throw new IllegalArgumentException("Cannot find the entry for " + pname + " in container " + seq.getName());
+    }
+
+    static int key(int apid, int type, int stype) {
+        return (apid << 16) | (type << 8) | stype;
+    }
+
+    // the PIC widths are limited to 32 bits
+    static long piKey(long pi1, long pi2) {
+        return (pi1 << 32) | (pi2 & 0xFFFFFFFFL);
+    }
+
+    // big endian read of maximum 57 bits starting at an arbitrary bit position
+    static long getBits(byte[] b, int bitOffset, int width) {
+        int first = bitOffset >> 3;
+        int last = (bitOffset + width - 1) >> 3;
+        long v = 0;
+        for (int i = first; i <= last; i++) {
+            v = (v << 8) | (b[i] & 0xFF);
+        }
+        int shift = 8 * (last + 1) - bitOffset - width;
+        return (v >>> shift) & ((1L << width) - 1);
+    }
+}
@@ -0,0 +1,474 @@
+package org.yamcs.scos2k.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yamcs.ProcessorConfig;
+import org.yamcs.YConfiguration;
+import org.yamcs.algorithms.ActiveAlgorithm;
+import org.yamcs.algorithms.AlgorithmExecutionContext;
+import org.yamcs.commanding.ArgumentValue;
+import org.yamcs.events.EventProducerFactory;
+import org.yamcs.mdb.DataTypeProcessor;
+import org.yamcs.mdb.MatchCriteriaEvaluator;
+import org.yamcs.mdb.MatchCriteriaEvaluator.MatchResult;
+import org.yamcs.mdb.MatchCriteriaEvaluatorFactory;
+import org.yamcs.mdb.Mdb;
+import org.yamcs.mdb.MdbFactory;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.mdb.ProcessorData;
+import org.yamcs.parameter.LastValueCache;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.scos2k.CveVerifier;
+import org.yamcs.scos2k.MibLoader;
+import org.yamcs.scos2k.Pus1Verifier;
+import org.yamcs.utils.TimeEncoding;
+import org.yamcs.utils.ValueUtility;
+import org.yamcs.xtce.Algorithm;
+import org.yamcs.xtce.Argument;
+import org.yamcs.xtce.ArgumentAssignment;
+import org.yamcs.xtce.ArgumentType;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.BooleanParameterType;
+import org.yamcs.xtce.CommandVerifier;
+import org.yamcs.xtce.CustomAlgorithm;
+import org.yamcs.xtce.EnumeratedParameterType;
+import org.yamcs.xtce.FloatArgumentType;
+import org.yamcs.xtce.FloatDataEncoding;
+import org.yamcs.xtce.FloatParameterType;
+import org.yamcs.xtce.IntegerArgumentType;
+import org.yamcs.xtce.IntegerDataEncoding;
+import org.yamcs.xtce.IntegerParameterType;
+import org.yamcs.xtce.MetaCommand;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.SequenceContainer;
+import org.yamcs.xtce.StringParameterType;
+
+/**
+ * Measures the verification of the commands of the MIB written by the {@link MibGenerator} with inFlight commands
+ * waiting for their verification. Each released command has the verifiers of its verification profile (CVP):
+ * <ul>
+ * <li>the {@link Pus1Verifier} algorithms of the stages with CVS_SOURCE=R, in an algorithm execution context of the
+ * command, as created by the Yamcs algorithm verifier. All the contexts are given each telemetry update.</li>
+ * <li>the {@link CveVerifier} algorithms compiled by the loader from the CVE expressions of the stages with
+ * CVS_SOURCE=V, in the same context.</li>
+ * <li>the match criteria built by the loader from the CVE expressions which cannot be compiled, evaluated as by the
+ * Yamcs match criteria verifier: subscribed to the parameters of the criteria and evaluated for each update of one of
+ * them, on a copy of the processing context containing the command arguments.</li>
+ * <li>the PUS(17,2) container verifier of the connection test commands which, as the Yamcs container verifier, is
+ * completed by any PUS(17,2) report.</li>
+ * </ul>
+ * The Yamcs match criteria and container verifiers require a running processor; the benchmark reproduces their
+ * subscription and evaluation steps.
+ * <p>
+ * Benchmarks:
+ * <ul>
+ * <li>report - a verification report. The reports acknowledge one after the other the stages of the oldest command in
+ * flight, which is then retired and replaced by a newly released command, as in a command upload campaign. The time
+ * of the last report of a command includes the release of the next one (creation of its verifiers, processing of the
+ * command arguments and of the sequence count).</li>
+ * <li>parameterUpdate - a telemetry update of 16 of the parameters used in the CVE expressions, with values not
+ * satisfying them such that the verifiers keep waiting.</li>
+ * </ul>
+ * The time reported is the average per report or update spent in the verifiers, running in a single thread; its
+ * inverse is the highest rate of reports or updates sustainable for that number of commands in flight. The latency
+ * percentiles are reported when running with {@code -bm sample}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Thread)
+public class VerificationBenchmark {
+    static final int PARAMS_PER_UPDATE = 16;
+
+    @Param({ "10000" })
+    int numParams;
+
+    @Param({ "100", "1000", "5000" })
+    int inFlight;
+
+    Path dir;
+    ProcessorData pdata;
+    LastValueCache lvc = new LastValueCache();
+    List<MetaCommand> commands = new ArrayList<>();
+    Parameter seqCountParam;
+    Parameter rcvdApid, rcvdSeq, reportSubType;
+
+    // the commands in flight, in the order of release
+    ArrayDeque<InFlightCommand> campaign = new ArrayDeque<>();
+    List<AlgorithmExecutionContext> algContexts = new ArrayList<>();
+    Map<Parameter, Set<CriteriaVerifier>> criteriaSubscriptions = new HashMap<>();
+    Map<SequenceContainer, Set<InFlightCommand>> containerSubscriptions = new HashMap<>();
+
+    List<List<ParameterValue>> updates = new ArrayList<>();
+    int nextCommand = 0;
+    int nextSeq = 0;
+    int nextUpdate = 0;
+    long numDeliveries = 0;
+    long time = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        TimeEncoding.setUp();
+        EventProducerFactory.setMockup(false);
+        dir = Files.createTempDirectory("mib");
+        new MibGenerator(dir, numParams, 0).generate();
+
+        Map<String, Object> loader = new HashMap<>();
+        loader.put("type", MibLoader.class.getName());
+        loader.put("args", MibGenerator.loaderConfig(dir));
+        Mdb mdb = MdbFactory.createInstance(Arrays.asList(YConfiguration.wrap(loader)), false, false);
+        pdata = new ProcessorData("bench", mdb, new ProcessorConfig());
+
+        Set<Parameter> criteriaParams = new TreeSet<>(Comparator.comparing(Parameter::getQualifiedName));
+        for (MetaCommand mc : mdb.getMetaCommands()) {
+            if (mc.isAbstract() || !mc.hasCommandVerifiers(true)) {
+                continue;
+            }
+            commands.add(mc);
+            for (CommandVerifier cv : mc.getCommandVerifiers(true)) {
+                if (cv.getAlgorithm() instanceof CveVerifier.Definition) {
+                    for (var input : cv.getAlgorithm().getInputList()) {
+                        criteriaParams.add(input.getParameterInstance().getParameter());
+                    }
+                } else if (cv.getType() == CommandVerifier.Type.ALGORITHM) {
+                    var inputs = cv.getAlgorithm().getInputList();
+                    seqCountParam = inputs.get(1).getParameterInstance().getParameter();
+                    rcvdApid = inputs.get(2).getParameterInstance().getParameter();
+                    rcvdSeq = inputs.get(3).getParameterInstance().getParameter();
+                    reportSubType = inputs.get(4).getParameterInstance().getParameter();
+                } else if (cv.getType() == CommandVerifier.Type.MATCH_CRITERIA) {
+                    criteriaParams.addAll(cv.getMatchCriteria().getDependentParameters());
+                }
+            }
+        }
+        commands.sort(Comparator.comparing(MetaCommand::getQualifiedName));
+
+        List<ParameterValue> update = new ArrayList<>();
+        for (Parameter p : criteriaParams) {
+            update.add(waitingValue(p));
+            if (update.size() == PARAMS_PER_UPDATE) {
+                updates.add(update);
+                update = new ArrayList<>();
+            }
+        }
+        if (!update.isEmpty()) {
+            updates.add(update);
+        }
+
+        for (int i = 0; i < inFlight; i++) {
+            release();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        MibLoadBenchmark.deleteDir(dir);
+    }
+
+    @Benchmark
+    public long report() {
+        InFlightCommand cmd = campaign.peekFirst();
+        while (!cmd.hasPendingReport()) {
+            retire(campaign.pollFirst());
+            release();
+            cmd = campaign.peekFirst();
+        }
+        time += 1000;
+        if (cmd.stageIdx < cmd.stages.size()) {
+            int stage = cmd.stages.get(cmd.stageIdx++);
+            ProcessingContext pctx = ProcessingContext.createForTmProcessing(lvc, time);
+            pctx.addTmParam(uintValue(rcvdApid, cmd.apid));
+            pctx.addTmParam(uintValue(rcvdSeq, cmd.seq));
+            pctx.addTmParam(uintValue(reportSubType, stage));
+            deliver(pctx);
+        } else {
+            // the container verifier unsubscribes and finishes when receiving the container
+            Set<InFlightCommand> waiting = containerSubscriptions.remove(cmd.container);
+            for (InFlightCommand c : waiting) {
+                c.container = null;
+            }
+        }
+        return numDeliveries;
+    }
+
+    @Benchmark
+    public long parameterUpdate() {
+        List<ParameterValue> update = updates.get(nextUpdate);
+        nextUpdate = (nextUpdate + 1) % updates.size();
+        time += 1000;
+        ProcessingContext pctx = ProcessingContext.createForTmProcessing(lvc, time);
+        for (ParameterValue pv : update) {
+            pctx.addTmParam(pv);
+        }
+        deliver(pctx);
+        return numDeliveries;
+    }
+
+    /**
+     * Gives the telemetry update to the algorithm contexts of all commands and to the match criteria verifiers
+     * subscribed to one of its parameters
+     */
+    private void deliver(ProcessingContext pctx) {
+        for (AlgorithmExecutionContext ctx : algContexts) {
+            ctx.process(time, pctx);
+        }
+        long delivery = ++numDeliveries;
+        List<CriteriaVerifier> targets = new ArrayList<>();
+        for (ParameterValue pv : pctx.getTmParams()) {
+            Set<CriteriaVerifier> subscribers = criteriaSubscriptions.get(pv.getParameter());
+            if (subscribers == null) {
+                continue;
+            }
+            for (CriteriaVerifier v : subscribers) {
+                if (v.lastDelivery != delivery) {
+                    v.lastDelivery = delivery;
+                    targets.add(v);
+                }
+            }
+        }
+        for (CriteriaVerifier v : targets) {
+            InFlightCommand cmd = v.cmd;
+            v.check(ProcessingContext.cloneForCommanding(pctx, cmd.args, cmd.cmdParams, time));
+        }
+        lvc.addAll(pctx.getTmParams());
+    }
+
+    /**
+     * Releases the next command of the MIB: creates its verifiers and gives them the command arguments and the
+     * sequence count
+     */
+    private void release() {
+        MetaCommand mc = commands.get(nextCommand);
+        nextCommand = (nextCommand + 1) % commands.size();
+        InFlightCommand cmd = new InFlightCommand();
+        cmd.seq = nextSeq;
+        nextSeq = (nextSeq + 1) & 0x3FFF;
+        cmd.args = argumentValues(mc);
+
+        for (CommandVerifier cv : mc.getCommandVerifiers(true)) {
+            switch (cv.getType()) {
+            case ALGORITHM -> {
+                if (cmd.algCtx == null) {
+                    cmd.algCtx = new AlgorithmExecutionContext(mc.getName() + "-" + cmd.seq, pdata, 10);
+                }
+                Algorithm alg = cv.getAlgorithm();
+                ActiveAlgorithm aa;
+                if (alg instanceof CveVerifier.Definition) {
+                    aa = new ActiveAlgorithm(alg, cmd.algCtx, new CveVerifier(alg, cmd.algCtx));
+                } else {
+                    String text = ((CustomAlgorithm) alg).getAlgorithmText();
+                    int stage = Integer.parseInt(text.replaceAll(".*stage: (\\d+).*", "$1"));
+                    HashMap<String, Object> conf = new HashMap<>();
+                    conf.put("stage", stage);
+                    aa = new ActiveAlgorithm(alg, cmd.algCtx, new Pus1Verifier(alg, cmd.algCtx, conf));
+                    cmd.stages.add(stage);
+                    Argument apidArg = alg.getInputList().get(0).getArgumentRef().getArgument();
+                    ArgumentValue apid = cmd.args.get(apidArg);
+                    cmd.apid = apid == null ? 0 : (int) apid.getEngValue().toLong();
+                }
+                AlgorithmExecutionContext ctx = cmd.algCtx;
+                aa.addExecListener((inputs, result, outputs) -> {
+                    if (result != null) {
+                        ctx.removeAlgorithm(alg);
+                    }
+                });
+                cmd.algCtx.addAlgorithm(aa);
+            }
+            case MATCH_CRITERIA -> {
+                CriteriaVerifier v = new CriteriaVerifier(cmd, cv);
+                cmd.criteria.add(v);
+                for (Parameter p : v.params) {
+                    criteriaSubscriptions.computeIfAbsent(p, k -> new LinkedHashSet<>()).add(v);
+                }
+            }
+            case CONTAINER -> {
+                cmd.container = cv.getContainerRef();
+                containerSubscriptions.computeIfAbsent(cmd.container, k -> new LinkedHashSet<>()).add(cmd);
+            }
+            default -> {
+            }
+            }
+        }
+        cmd.stages.sort(null);
+
+        if (cmd.algCtx != null) {
+            algContexts.add(cmd.algCtx);
+            cmd.algCtx.process(time, ProcessingContext.createInitial(lvc, cmd.args, cmd.cmdParams, time));
+        }
+        for (CriteriaVerifier v : cmd.criteria) {
+            v.check(ProcessingContext.createInitial(lvc, cmd.args, cmd.cmdParams, time));
+        }
+        ParameterValue seqPv = new ParameterValue(seqCountParam);
+        seqPv.setEngValue(ValueUtility.getSint32Value(cmd.seq));
+        cmd.cmdParams.add(seqPv);
+        if (cmd.algCtx != null) {
+            ProcessingContext cmdCtx = ProcessingContext.createForCmdProcessing(lvc, cmd.args, cmd.cmdParams, time);
+            cmdCtx.addCmdParam(seqPv);
+            cmd.algCtx.process(time, cmdCtx);
+        }
+        campaign.addLast(cmd);
+    }
+
+    /**
+     * Stops the verifiers still waiting
+     */
+    private void retire(InFlightCommand cmd) {
+        if (cmd.algCtx != null) {
+            for (ActiveAlgorithm aa : new ArrayList<>(cmd.algCtx.getActiveAlgorithms())) {
+                cmd.algCtx.removeAlgorithm(aa.getAlgorithm());
+            }
+            algContexts.remove(cmd.algCtx);
+        }
+        for (CriteriaVerifier v : cmd.criteria) {
+            v.unsubscribe();
+        }
+        if (cmd.container != null) {
+            containerSubscriptions.get(cmd.container).remove(cmd);
+        }
+    }
+
+    private Map<Argument, ArgumentValue> argumentValues(MetaCommand mc) {
+        Map<String, String> assigned = new HashMap<>();
+        for (ArgumentAssignment aa : mc.getEffectiveArgumentAssignmentList()) {
+            assigned.put(aa.getArgumentName(), aa.getArgumentValue());
+        }
+        Map<Argument, ArgumentValue> args = new HashMap<>();
+        for (Argument arg : mc.getEffectiveArgumentList()) {
+            ArgumentType type = arg.getArgumentType();
+            Object v = assigned.containsKey(arg.getName()) ? assigned.get(arg.getName()) : arg.getInitialValue();
+            if (v == null && (type instanceof IntegerArgumentType || type instanceof FloatArgumentType)) {
+                // value entered by the user
+                v = "0";
+            }
+            if (v == null || type == null) {
+                continue;
+            }
+            try {
+                Value value = DataTypeProcessor.getValueForType(type, type.convertType(v));
+                ArgumentValue av = new ArgumentValue(arg);
+                av.setEngValue(value);
+                av.setRawValue(value);
+                args.put(arg, av);
+            } catch (RuntimeException e) {
+                // argument without simple value, not used by the verifiers
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Returns a value of the parameter not satisfying the CVE expressions written by the generator
+     */
+    static ParameterValue waitingValue(Parameter p) {
+        ParameterValue pv = new ParameterValue(p);
+        var ptype = p.getParameterType();
+        var encoding = ptype instanceof BaseDataType bdt ? bdt.getEncoding() : null;
+        if (encoding instanceof IntegerDataEncoding ide) {
+            pv.setRawValue(ide.getEncoding() == IntegerDataEncoding.Encoding.UNSIGNED ? ValueUtility.getUint32Value(0)
+                    : ValueUtility.getSint32Value(0));
+        } else if (encoding instanceof FloatDataEncoding fde) {
+            pv.setRawValue(fde.getSizeInBits() == 32 ? ValueUtility.getFloatValue(0) : ValueUtility.getDoubleValue(0));
+        }
+        if (ptype instanceof IntegerParameterType ipt) {
+            pv.setEngValue(ipt.isSigned() ? ValueUtility.getSint32Value(-1000) : ValueUtility.getUint32Value(100000));
+        } else if (ptype instanceof FloatParameterType fpt) {
+            pv.setEngValue(fpt.getSizeInBits() == 32 ? ValueUtility.getFloatValue(-1000)
+                    : ValueUtility.getDoubleValue(-1000));
+        } else if (ptype instanceof EnumeratedParameterType) {
+            pv.setEngValue(ValueUtility.getStringValue("UNDEFINED"));
+        } else if (ptype instanceof BooleanParameterType) {
+            pv.setEngValue(ValueUtility.getBooleanValue(false));
+        } else if (ptype instanceof StringParameterType) {
+            pv.setEngValue(ValueUtility.getStringValue(""));
+        }
+        return pv;
+    }
+
+    static ParameterValue uintValue(Parameter p, int v) {
+        ParameterValue pv = new ParameterValue(p);
+        pv.setRawValue(ValueUtility.getUint32Value(v));
+        pv.setEngValue(ValueUtility.getUint32Value(v));
+        return pv;
+    }
+
+    static class InFlightCommand {
+        int seq;
+        int apid;
+        Map<Argument, ArgumentValue> args;
+        LastValueCache cmdParams = new LastValueCache();
+        AlgorithmExecutionContext algCtx;
+        // the PUS1 stages (report sub-types) and the index of the next one to be reported
+        List<Integer> stages = new ArrayList<>();
+        int stageIdx;
+        List<CriteriaVerifier> criteria = new ArrayList<>();
+        // the container expected by the container verifier, null if none or received
+        SequenceContainer container;
+
+        boolean hasPendingReport() {
+            return stageIdx < stages.size() || container != null;
+        }
+    }
+
+    class CriteriaVerifier {
+        final InFlightCommand cmd;
+        final CommandVerifier cv;
+        final MatchCriteriaEvaluator evaluator;
+        final Set<Parameter> params;
+        boolean running = true;
+        long lastDelivery;
+
+        CriteriaVerifier(InFlightCommand cmd, CommandVerifier cv) {
+            this.cmd = cmd;
+            this.cv = cv;
+            this.evaluator = MatchCriteriaEvaluatorFactory.getEvaluator(cv.getMatchCriteria());
+            this.params = cv.getMatchCriteria().getDependentParameters();
+        }
+
+        void check(ProcessingContext pctx) {
+            if (!running) {
+                return;
+            }
+            MatchResult r = evaluator.evaluate(pctx);
+            if (r == MatchResult.OK || (r == MatchResult.NOK && cv.failOnFirstFailedMatch())) {
+                unsubscribe();
+            }
+        }
+
+        void unsubscribe() {
+            if (running) {
+                running = false;
+                for (Parameter p : params) {
+                    criteriaSubscriptions.get(p).remove(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.yamcs.scos2k.benchmarks;
+
+import org.yamcs.xtce.EnumeratedParameterType;
+import org.yamcs.xtce.FloatDataEncoding;
+import org.yamcs.xtce.FloatParameterType;
+import org.yamcs.xtce.IntegerDataEncoding;
+import org.yamcs.xtce.IntegerParameterType;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterType;
+import org.yamcs.xtce.SpaceSystem;
+
+/**
+ * Builds the XTCE objects used by the benchmarks which do not load a MIB.
+ */
+class XtceTypes {
+
+    static Parameter addParameter(SpaceSystem ss, String name, ParameterType ptype) {
+        Parameter p = new Parameter(name);
+        p.setQualifiedName(ss.getQualifiedName() + "/" + name);
+        p.setParameterType(ptype);
+        ss.addParameter(p);
+        return p;
+    }
+
+    static IntegerParameterType uintType(String name, int size) {
+        IntegerParameterType.Builder b = new IntegerParameterType.Builder();
+        b.setName(name);
+        b.setSizeInBits(size);
+        b.setSigned(false);
+        b.setEncoding(new IntegerDataEncoding.Builder().setSizeInBits(size)
+                .setEncoding(IntegerDataEncoding.Encoding.UNSIGNED));
+        return b.build();
+    }
+
+    static IntegerParameterType intType(String name, int size) {
+        IntegerParameterType.Builder b = new IntegerParameterType.Builder();
+        b.setName(name);
+        b.setSizeInBits(size);
+        b.setSigned(true);
+        b.setEncoding(new IntegerDataEncoding.Builder().setSizeInBits(size)
+                .setEncoding(IntegerDataEncoding.Encoding.TWOS_COMPLEMENT));
+        return b.build();
+    }
+
+    static FloatParameterType floatType(String name, int size) {
+        FloatParameterType.Builder b = new FloatParameterType.Builder();
+        b.setName(name);
+        b.setSizeInBits(size);
+        b.setEncoding(new FloatDataEncoding.Builder().setSizeInBits(size));
+        return b.build();
+    }
+
+    /**
+     * enumerated type with an 8 bits unsigned raw value; the labels are assigned to the raw values 0, 1, 2...
+     */
+    static EnumeratedParameterType enumType(String name, String... labels) {
+        EnumeratedParameterType.Builder b = new EnumeratedParameterType.Builder();
+        b.setName(name);
+        for (int i = 0; i < labels.length; i++) {
+            b.addEnumerationValue(i, labels[i]);
+        }
+        b.setEncoding(new IntegerDataEncoding.Builder().setSizeInBits(8)
+                .setEncoding(IntegerDataEncoding.Encoding.UNSIGNED));
+        return b.build();
+    }
+}
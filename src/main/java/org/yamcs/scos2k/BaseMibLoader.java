@@ -2,15 +2,17 @@ package org.yamcs.scos2k;
 
 import static org.yamcs.scos2k.MibLoaderBits.*;
 
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
-import java.io.LineNumberReader;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Pattern;
 
 import org.yamcs.ConfigurationException;
@@ -54,9 +56,12 @@ public abstract class BaseMibLoader extends AbstractFileLoader {
     MibConfig conf = new MibConfig();
 
     protected MibLoaderContext ctx = new MibLoaderContext(conf, null, -1);
-    protected LineNumberReader reader;
     String currentFile;
-    String separator = "\t";
+    // the table currently being read
+    private MibTable table;
+    // tables tokenized in advance by preloadTables()
+    private Map<String, MibTable> preloadedTables = new HashMap<>();
+    char separator = '\t';
 
     Map<Long, SequenceContainer> spidToSeqContainer = new HashMap<>();
     Map<String, DeducedParameter> deducedParameters = new HashMap<>();
@@ -69,10 +74,16 @@ public abstract class BaseMibLoader extends AbstractFileLoader {
 
     String ssName;
 
+    // loader configuration and MIB content digest used to check the validity of the serialized MDB
+    private final Map<String, Object> configRoot;
+    private String digest;
+
     public BaseMibLoader(YConfiguration config) throws ConfigurationException {
         super(config.getString("path"));
+        configRoot = config.getRoot();
 
         conf.generatePusNamespace = config.getBoolean("generatePusNamespace", true);
+        conf.parallelIngestion = config.getBoolean("parallelIngestion", false);
         ssName = config.getString("spaceSystemName", "MIB");
         String epoch = config.getString("epoch", "1970-01-01T00:00:00");
         if ("TCO".equalsIgnoreCase(epoch)) {
@@ -182,36 +193,203 @@ public abstract class BaseMibLoader extends AbstractFileLoader {
         }
     }
 
+    /**
+     * Moves to the next row of the current table and returns all its columns.
+     * <p>
+     * For the large tables, prefer {@link #nextRow()} followed by the column accessors which do not create a String
+     * for each column.
+     *
+     * @return the columns of the next row or null if the end of the table has been reached
+     */
     protected String[] nextLine() throws DatabaseLoadException {
-        try {
-            String line = reader.readLine();
-            ctx.lineNum = reader.getLineNumber();
-            if (ctx.lineNum == 1 && line != null && line.startsWith("#")) {
-                line = reader.readLine();
-                ctx.lineNum = reader.getLineNumber();
-            }
-            if (line == null) {
-                return null;
+        if (!nextRow()) {
+            return null;
+        }
+        return table.toArray();
+    }
+
+    /**
+     * Moves to the next row of the current table.
+     * <p>
+     * The columns of the row can be read using {@link #getString(int)}, {@link #getInt(int)}, {@link #hasColumn(int)}
+     * etc.
+     *
+     * @return false if the end of the table has been reached
+     */
+    protected boolean nextRow() {
+        boolean r = table.next();
+        ctx.lineNum = table.lineNum();
+        return r;
+    }
+
+    protected boolean hasColumn(int colNum) {
+        return !table.isEmpty(colNum);
+    }
+
+    protected void checkMandatory(int... notnull) {
+        for (int k : notnull) {
+            if (table.numColumns() <= k) {
+                throw new MibLoadException(ctx, "Missing column " + (k + 1));
             }
-            return line.split(separator);
-        } catch (IOException e) {
-            throw new DatabaseLoadException("Error reading from " + currentFile + ": " + e.getMessage(), e);
         }
     }
 
+    protected String getString(int colNum) throws MibLoadException {
+        checkMandatory(colNum);
+        return table.getString(colNum);
+    }
+
+    protected String getString(int colNum, String defaultValue) {
+        return hasColumn(colNum) ? table.getString(colNum) : defaultValue;
+    }
+
+    /**
+     * 
+     * @return true if the column is present in the current row and equal to the given value
+     */
+    protected boolean columnEquals(int colNum, String value) {
+        return colNum < table.numColumns() && table.equals(colNum, value);
+    }
+
+    protected int getInt(int colNum) throws MibLoadException {
+        checkMandatory(colNum);
+        try {
+            return table.parseInt(colNum);
+        } catch (NumberFormatException e) {
+            throw new MibLoadException(ctx,
+                    "Failed to parse '" + table.getString(colNum) + "' into a number");
+        }
+    }
+
+    protected int getInt(int colNum, int defaultValue) throws MibLoadException {
+        return hasColumn(colNum) ? getInt(colNum) : defaultValue;
+    }
+
+    protected long getLong(int colNum) throws MibLoadException {
+        checkMandatory(colNum);
+        try {
+            return table.parseLong(colNum);
+        } catch (NumberFormatException e) {
+            throw new MibLoadException(ctx,
+                    "Failed to parse '" + table.getString(colNum) + "' into a number");
+        }
+    }
+
+    protected long getLong(int colNum, long defaultValue) throws MibLoadException {
+        return hasColumn(colNum) ? getLong(colNum) : defaultValue;
+    }
+
+    protected long getUnsignedLong(int colNum) throws MibLoadException {
+        checkMandatory(colNum);
+        try {
+            return table.parseUnsignedLong(colNum);
+        } catch (NumberFormatException e) {
+            throw new MibLoadException(ctx,
+                    "Failed to parse '" + table.getString(colNum) + "' into a number");
+        }
+    }
+
+    protected double getDouble(int colNum) throws MibLoadException {
+        checkMandatory(colNum);
+        try {
+            return table.parseDouble(colNum);
+        } catch (NumberFormatException e) {
+            throw new MibLoadException(ctx,
+                    "Failed to parse '" + table.getString(colNum) + "' into a number");
+        }
+    }
+
+    protected double getDouble(int colNum, double defaultValue) throws MibLoadException {
+        return hasColumn(colNum) ? getDouble(colNum) : defaultValue;
+    }
+
     protected void switchTo(String filename) throws DatabaseLoadException {
         currentFile = path + "/" + filename + ".dat";
+        table = preloadedTables.remove(filename);
+        if (table == null) {
+            table = MibTable.read(path, filename, separator);
+        }
+        ctx.filename = currentFile;
+        ctx.lineNum = 0;
+    }
+
+    /**
+     * Maps and indexes in parallel the given tables such that the subsequent {@link #switchTo(String)} does not have to
+     * read the files anymore.
+     * <p>
+     * The tables whose file does not exist are skipped; the error will be raised when (and if) the loader switches to
+     * them.
+     */
+    protected void preloadTables(String... names) throws DatabaseLoadException {
+        int parallelism = Math.min(names.length, Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
         try {
-            if (reader != null) {
-                reader.close();
+            List<ForkJoinTask<MibTable>> tasks = new ArrayList<>();
+            for (String name : names) {
+                if (new File(path + "/" + name + ".dat").exists()) {
+                    tasks.add(pool.submit(() -> MibTable.read(path, name, separator)));
+                }
+            }
+            for (ForkJoinTask<MibTable> task : tasks) {
+                MibTable t = task.join();
+                preloadedTables.put(t.name, t);
             }
-            reader = new LineNumberReader(new FileReader(currentFile));
-            ctx.filename = currentFile;
-        } catch (FileNotFoundException e) {
-            throw new DatabaseLoadException("Cannot find " + currentFile);
-        } catch (IOException e) {
-            throw new DatabaseLoadException("Error when closing file", e);
+        } finally {
+            pool.shutdown();
+        }
+        log.debug("Preloaded {} MIB tables using {} threads", preloadedTables.size(), parallelism);
+    }
+
+    /**
+     * Checks the validity of the MDB serialized by Yamcs by comparing the digest of the MIB content and loader
+     * configuration with the one written when the MDB has been serialized.
+     * <p>
+     * Unlike the default implementation, this detects modifications of the files inside the MIB directory.
+     */
+    @Override
+    public boolean needsUpdate(RandomAccessFile consistencyDateFile) throws IOException, ConfigurationException {
+        if (!new File(path).exists()) {
+            throw new ConfigurationException("The file " + path + " doesn't exist");
+        }
+        if (getDigest() == null) {
+            log.warn("Cannot determine the version of the plugin, the serialized {} is not reused", configName);
+            return true;
+        }
+        String prefix = configName + " ";
+        String line;
+        while ((line = consistencyDateFile.readLine()) != null) {
+            if (line.startsWith(prefix)) {
+                String serializedDigest = line.substring(prefix.length());
+                if (serializedDigest.equals(getDigest())) {
+                    log.debug("Serialized {} is up to date", configName);
+                    return false;
+                } else {
+                    log.debug("Serialized {} is NOT up to date: serializedDigest={}, mibDigest={}", configName,
+                            serializedDigest, getDigest());
+                    return true;
+                }
+            }
+        }
+        log.info("Could not find a line starting with '{}' in the consistency date file", configName);
+        return true;
+    }
+
+    @Override
+    public void writeConsistencyDate(FileWriter consistencyDateFile) throws IOException {
+        String d = getDigest();
+        if (d != null) {
+            consistencyDateFile.write(configName + " " + d + "\n");
+        }
+    }
+
+    // null if the plugin version cannot be determined
+    private String getDigest() throws IOException {
+        if (digest == null) {
+            long t0 = System.currentTimeMillis();
+            digest = MibDigest.compute(path, configRoot);
+            log.debug("Computed MIB digest {} in {} ms", digest, System.currentTimeMillis() - t0);
         }
+        return digest;
     }
 
     // make the natural datatype for this encoding knowing there is no calibration
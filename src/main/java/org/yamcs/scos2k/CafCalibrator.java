@@ -0,0 +1,167 @@
+package org.yamcs.scos2k;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.yamcs.YConfiguration;
+import org.yamcs.algorithms.AlgorithmExecutionContext;
+import org.yamcs.mdb.AlgorithmCalibratorProc;
+import org.yamcs.mdb.NumericCalibrator;
+import org.yamcs.mdb.NumericCalibratorProc;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.mdb.XtceProcessingException;
+import org.yamcs.parameter.Value;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.CustomAlgorithm;
+import org.yamcs.xtce.SplinePoint;
+
+/**
+ * Calibrator for the numerical calibration curves (CAF/CAP): linear interpolation between the points, with
+ * extrapolation of the first/last segment outside the curve like the Yamcs spline calibrator.
+ * <p>
+ * The Yamcs spline calibrator searches linearly for the segment containing the raw value and computes its slope for
+ * each sample. This calibrator precomputes the slopes when the MDB is loaded and finds the segment by binary search
+ * or, if the raw values of the points are regularly spaced (up to the rounding to the raw format), by a division
+ * followed by a comparison with the neighbour points.
+ * <p>
+ * The conversion of the raw value to double and of the result to the engineering type (derived from CAF_ENGFMT,
+ * rounded for the integer types) is done by the Yamcs {@link NumericCalibratorProc}, as for the spline calibrator.
+ * The raw and engineering values of the points are parsed according to CAF_RAWFMT, CAF_ENGFMT and CAF_RADIX by the
+ * loader.
+ */
+public class CafCalibrator implements AlgorithmCalibratorProc, NumericCalibrator {
+    Definition definition;
+    NumericCalibratorProc proc;
+
+    /**
+     * The MDB definition of the calibrator
+     */
+    public static class Definition extends CustomAlgorithm {
+        private static final long serialVersionUID = 1L;
+
+        // raw values of the points, sorted, and the engineering values
+        final double[] xs;
+        final double[] ys;
+        // slope of the segment starting at the point i, for i < n-1
+        final double[] slopes;
+        // if the raw values are (approximately) regularly spaced, the inverse of the spacing, otherwise 0
+        final double invStep;
+
+        public Definition(String name, List<SplinePoint> points) {
+            super(name);
+            if (points.size() < 2) {
+                throw new IllegalArgumentException("The calibration curve needs at least two points");
+            }
+            SplinePoint[] sorted = points.toArray(new SplinePoint[0]);
+            Arrays.sort(sorted);
+            int n = sorted.length;
+            xs = new double[n];
+            ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = sorted[i].getRaw();
+                ys[i] = sorted[i].getCalibrated();
+            }
+            slopes = new double[n - 1];
+            for (int i = 0; i < n - 1; i++) {
+                slopes[i] = (ys[i + 1] - ys[i]) / (xs[i + 1] - xs[i]);
+            }
+            invStep = isUniform(xs) ? (n - 1) / (xs[n - 1] - xs[0]) : 0;
+            setLanguage("java");
+            setAlgorithmText(CafCalibrator.class.getName());
+        }
+
+        private Definition(Definition d) {
+            super(d.getName());
+            this.xs = d.xs;
+            this.ys = d.ys;
+            this.slopes = d.slopes;
+            this.invStep = d.invStep;
+            setLanguage(d.getLanguage());
+            setAlgorithmText(d.getAlgorithmText());
+            setQualifiedName(d.getQualifiedName());
+        }
+
+        // true if each point is at less than half a step from the regular grid between the first and last point
+        private static boolean isUniform(double[] xs) {
+            int n = xs.length;
+            double step = (xs[n - 1] - xs[0]) / (n - 1);
+            if (!(step > 0) || Double.isInfinite(step)) {
+                return false;
+            }
+            for (int i = 1; i < n - 1; i++) {
+                if (Math.abs(xs[i] - (xs[0] + i * step)) >= step / 2) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the index of the segment used to calibrate x.
+         */
+        int segment(double x) {
+            int last = xs.length - 2;
+            int i;
+            if (invStep > 0) {
+                // the grid gives the segment or one of its neighbours
+                i = (int) ((x - xs[0]) * invStep);
+                i = i < 0 ? 0 : (i > last ? last : i);
+                if (i > 0 && x < xs[i]) {
+                    i--;
+                } else if (i < last && x >= xs[i + 1]) {
+                    i++;
+                }
+                return i;
+            } else {
+                i = Arrays.binarySearch(xs, x);
+                // exact match: use the segment ending at the point, like the Yamcs spline calibrator
+                i = i >= 0 ? i - 1 : -i - 2;
+                return i < 0 ? 0 : (i > last ? last : i);
+            }
+        }
+
+        double calibrate(double x) {
+            int i = segment(x);
+            return ys[i] + slopes[i] * (x - xs[i]);
+        }
+
+        @Override
+        public CustomAlgorithm copy() {
+            return new Definition(this);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("CafCalibrator[");
+            for (int i = 0; i < xs.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append("(").append(xs[i]).append(",").append(ys[i]).append(")");
+            }
+            return sb.append("]").toString();
+        }
+    }
+
+    @Override
+    public void init(CustomAlgorithm customAlgorithm, AlgorithmExecutionContext execCtx, YConfiguration config,
+            BaseDataType dtype) {
+        this.definition = (Definition) customAlgorithm;
+        this.proc = new NumericCalibratorProc(dtype, this);
+    }
+
+    @Override
+    public double calibrate(double x) {
+        return definition.calibrate(x);
+    }
+
+    @Override
+    public Value calibrate(Value raw, ProcessingContext ctx) throws XtceProcessingException {
+        return proc.calibrate(raw, ctx);
+    }
+
+    @Override
+    public Value decalibrate(Value v, ProcessingContext ctx) throws XtceProcessingException {
+        return proc.decalibrate(v, ctx);
+    }
+}
@@ -0,0 +1,129 @@
+package org.yamcs.scos2k;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.yamcs.YConfiguration;
+import org.yamcs.algorithms.AlgorithmExecutionContext;
+import org.yamcs.mdb.AlgorithmCalibratorProc;
+import org.yamcs.mdb.CalibratorFactory;
+import org.yamcs.mdb.CalibratorProc;
+import org.yamcs.mdb.NumericCalibratorProc;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.mdb.ProcessorData;
+import org.yamcs.mdb.XtceProcessingException;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.Calibrator;
+import org.yamcs.xtce.CustomAlgorithm;
+import org.yamcs.xtce.ParameterInstanceRef;
+
+/**
+ * Calibrator selecting the numerical calibration of a parameter by the raw value of the CUR_RLCHK parameter.
+ * <p>
+ * The CUR records of a parameter are translated by default into a list of context calibrators, each with an equality
+ * condition on the CUR_RLCHK parameter; the conditions are evaluated in order for each sample until one of them
+ * matches. When all the CUR records of a parameter refer to the same CUR_RLCHK parameter, the loader uses instead this
+ * calibrator which finds the calibration with one hash lookup on the CUR_VALPAR value. If the value does not match any
+ * record (or if the CUR_RLCHK parameter has no value), the default calibration (PCF_CURTX) is used.
+ * <p>
+ * The calibration definitions are kept in the {@link Definition} algorithm stored in the MDB; the calibrator itself is
+ * instantiated by Yamcs for each processor.
+ */
+public class CurCalibrator implements AlgorithmCalibratorProc {
+    Definition definition;
+    LongObjectHashMap<CalibratorProc> procs;
+    CalibratorProc defaultProc;
+
+    /**
+     * The MDB definition of the calibrator
+     */
+    public static class Definition extends CustomAlgorithm {
+        private static final long serialVersionUID = 1L;
+
+        final ParameterInstanceRef rlchk;
+        // CUR_VALPAR values and the corresponding calibrators, in the order of the CUR_POS
+        final long[] valpars;
+        final Calibrator[] calibrators;
+        // used when no CUR_VALPAR matches, can be null
+        final Calibrator defaultCalibrator;
+
+        Definition(String name, ParameterInstanceRef rlchk, long[] valpars,
+                Calibrator[] calibrators, Calibrator defaultCalibrator) {
+            super(name);
+            this.rlchk = rlchk;
+            this.valpars = valpars;
+            this.calibrators = calibrators;
+            this.defaultCalibrator = defaultCalibrator;
+            setLanguage("java");
+            setAlgorithmText(CurCalibrator.class.getName());
+        }
+
+        @Override
+        public CustomAlgorithm copy() {
+            Definition a = new Definition(getName(), rlchk, valpars, calibrators, defaultCalibrator);
+            a.setQualifiedName(getQualifiedName());
+            return a;
+        }
+    }
+
+    @Override
+    public void init(CustomAlgorithm customAlgorithm, AlgorithmExecutionContext execCtx, YConfiguration config,
+            BaseDataType dtype) {
+        this.definition = (Definition) customAlgorithm;
+        ProcessorData pdata = execCtx.getProcessorData();
+        Map<Calibrator, CalibratorProc> created = new IdentityHashMap<>();
+        procs = new LongObjectHashMap<>(definition.valpars.length);
+        for (int i = 0; i < definition.valpars.length; i++) {
+            Calibrator c = definition.calibrators[i];
+            CalibratorProc proc = created.computeIfAbsent(c, k -> getCalibratorProc(k, dtype, pdata));
+            // like for the ordered evaluation, the first record matching a value is used
+            procs.putIfAbsent(definition.valpars[i], proc);
+        }
+        defaultProc = getCalibratorProc(definition.defaultCalibrator, dtype, pdata);
+    }
+
+    private static CalibratorProc getCalibratorProc(Calibrator c, BaseDataType dtype, ProcessorData pdata) {
+        if (c == null) {
+            // no calibration, the raw value is only converted to the type of the engineering value
+            return new NumericCalibratorProc(dtype, x -> x);
+        }
+        return CalibratorFactory.get(c, dtype, pdata);
+    }
+
+    @Override
+    public Value calibrate(Value raw, ProcessingContext ctx) throws XtceProcessingException {
+        CalibratorProc proc = null;
+        ParameterValue pv = ctx.getParameterInstance(definition.rlchk);
+        if (pv != null && pv.getRawValue() != null) {
+            Value v = pv.getRawValue();
+            switch (v.getType()) {
+            case UINT32:
+            case SINT32:
+            case UINT64:
+            case SINT64:
+                proc = procs.get(v.toLong());
+                break;
+            case FLOAT:
+            case DOUBLE:
+                double d = v.toDouble();
+                if (d == (long) d) {
+                    proc = procs.get((long) d);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        if (proc == null) {
+            proc = defaultProc;
+        }
+        return proc.calibrate(raw, ctx);
+    }
+
+    @Override
+    public Value decalibrate(Value v, ProcessingContext ctx) throws XtceProcessingException {
+        return defaultProc.decalibrate(v, ctx);
+    }
+}
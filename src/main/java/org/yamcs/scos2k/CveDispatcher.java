@@ -0,0 +1,88 @@
+package org.yamcs.scos2k;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.mdb.ProcessorData;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.xtce.Parameter;
+
+/**
+ * Finds the {@link CveVerifier}s concerned by a telemetry update.
+ * <p>
+ * Yamcs offers each telemetry update to the verifiers of all the commands in flight. The CVE verifiers register with
+ * the dispatcher of their processor under their parameters. For each telemetry update, the dispatcher looks up once
+ * the verifiers of the parameters it contains and marks them with the update; the other verifiers ignore the update
+ * after one comparison.
+ */
+class CveDispatcher {
+    private static final Map<ProcessorData, CveDispatcher> dispatchers = new WeakHashMap<>();
+
+    // parameter -> verifiers waiting for it
+    private final Map<Parameter, List<CveVerifier>> waiting = new HashMap<>();
+
+    // the last telemetry update dispatched
+    private volatile ProcessingContext lastCtx;
+
+    static CveDispatcher get(ProcessorData pdata) {
+        synchronized (dispatchers) {
+            return dispatchers.computeIfAbsent(pdata, k -> new CveDispatcher());
+        }
+    }
+
+    synchronized void register(CveVerifier v) {
+        for (Parameter p : v.params) {
+            waiting.computeIfAbsent(p, k -> new ArrayList<>()).add(v);
+        }
+        lastCtx = null;
+    }
+
+    synchronized void unregister(CveVerifier v) {
+        for (Parameter p : v.params) {
+            List<CveVerifier> l = waiting.get(p);
+            if (l != null) {
+                l.remove(v);
+                if (l.isEmpty()) {
+                    waiting.remove(p);
+                }
+            }
+        }
+        lastCtx = null;
+    }
+
+    /**
+     * Marks the verifiers waiting for one of the parameters of the telemetry update; does nothing if the update has
+     * already been dispatched.
+     */
+    void dispatch(ProcessingContext pctx) {
+        if (pctx == lastCtx) {
+            return;
+        }
+        synchronized (this) {
+            if (pctx == lastCtx) {
+                return;
+            }
+            ParameterValueList tmParams = pctx.getTmParams();
+            if (tmParams != null && !waiting.isEmpty()) {
+                for (ParameterValue pv : tmParams) {
+                    List<CveVerifier> l = waiting.get(pv.getParameter());
+                    if (l != null) {
+                        for (CveVerifier v : l) {
+                            v.target = pctx;
+                        }
+                    }
+                }
+            }
+            lastCtx = pctx;
+        }
+    }
+
+    synchronized int size() {
+        return waiting.size();
+    }
+}
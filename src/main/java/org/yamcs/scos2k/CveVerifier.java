@@ -0,0 +1,421 @@
+package org.yamcs.scos2k;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.yamcs.algorithms.AbstractAlgorithmExecutor;
+import org.yamcs.algorithms.AlgorithmExecutionContext;
+import org.yamcs.algorithms.AlgorithmExecutionResult;
+import org.yamcs.commanding.ArgumentValue;
+import org.yamcs.commanding.VerificationResult;
+import org.yamcs.mdb.MatchCriteriaEvaluator;
+import org.yamcs.mdb.MatchCriteriaEvaluator.MatchResult;
+import org.yamcs.mdb.MatchCriteriaEvaluatorFactory;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.parameter.RawEngValue;
+import org.yamcs.parameter.Value;
+import org.yamcs.xtce.Algorithm;
+import org.yamcs.xtce.Argument;
+import org.yamcs.xtce.CustomAlgorithm;
+import org.yamcs.xtce.InputParameter;
+import org.yamcs.xtce.MatchCriteria;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.ParameterInstanceRef.InstanceRelativeTo;
+
+/**
+ * Verifier of the command stages with CVS_SOURCE=V, checking the CVE verification expressions of the stage.
+ * <p>
+ * The expressions are compiled by the loader into a {@link Definition}: one check per expression on the raw or
+ * engineering value (CVE_INTER) of a parameter, either a numeric range (the tolerance CVE_TOL folded into the bounds,
+ * equal bounds for the equality) or a string equality (enumerated and string values). The parameters are the inputs of
+ * the algorithm and the checks refer to them by input index.
+ * <p>
+ * The expressions comparing the raw value of a parameter with the value of a command argument (CVE_INTER=C) are
+ * compiled into ranges relative to the argument value; when the verifier starts, the value of the argument in the
+ * released command is added to the bounds, after which the check costs the same as a check against a fixed value.
+ * <p>
+ * The few expressions which cannot be compiled (for example on time or binary values) are kept as match criteria,
+ * evaluated by Yamcs on the last values of the parameters when all the other checks are satisfied.
+ * <p>
+ * Instead of reading all its inputs from each telemetry update, the verifier is notified by the {@link CveDispatcher}
+ * of the updates containing one of its parameters and is evaluated only for those. The stage succeeds when all the
+ * checks are satisfied by the last values of the parameters; otherwise the verifier keeps waiting until the end of the
+ * verification window, like the match criteria verifier it replaces. The values of the parameters at the start of the
+ * verification are taken from the last value cache.
+ */
+public class CveVerifier extends AbstractAlgorithmExecutor {
+    private static final AlgorithmExecutionResult NO_RESULT = new AlgorithmExecutionResult(Collections.emptyList());
+
+    final Definition definition;
+    final Parameter[] params;
+    final ParameterInstanceRef[] refs;
+    // the last value of each parameter
+    final ParameterValue[] values;
+    // the bounds of the checks, copied from the definition and bound to the command arguments if needed
+    double[] lo;
+    double[] hi;
+    // the evaluators of the match criteria checks, null if there are none
+    final MatchCriteriaEvaluator[] evaluators;
+
+    private final CveDispatcher dispatcher;
+    private volatile boolean registered;
+    // the last telemetry update containing one of the parameters, set by the dispatcher
+    volatile ProcessingContext target;
+
+    /**
+     * One verification expression
+     *
+     * @param param
+     *            - the parameter checked
+     * @param raw
+     *            - true if the raw value is checked, false for the engineering value
+     * @param lo
+     *            - lower bound of the numeric values satisfying the check
+     * @param hi
+     *            - upper bound of the numeric values satisfying the check
+     * @param str
+     *            - the expected value of a string check, null for a numeric check
+     * @param arg
+     *            - the name of the command argument whose value is added to the bounds, null for the checks against a
+     *            fixed value
+     * @param float32
+     *            - true if the bounds have to be converted to float after adding the argument value (32 bits float
+     *            parameter values)
+     * @param criteria
+     *            - the match criteria evaluated by Yamcs for the expressions which cannot be compiled, null otherwise
+     */
+    public record Check(Parameter param, boolean raw, double lo, double hi, String str, String arg, boolean float32,
+            MatchCriteria criteria) {
+        static Check range(Parameter param, boolean raw, double lo, double hi) {
+            return new Check(param, raw, lo, hi, null, null, false, null);
+        }
+
+        static Check equal(Parameter param, boolean raw, String str) {
+            return new Check(param, raw, Double.NaN, Double.NaN, str, null, false, null);
+        }
+
+        static Check argument(Parameter param, String arg, double tolerance, boolean float32) {
+            return new Check(param, true, -tolerance, tolerance, null, arg, float32, null);
+        }
+
+        static Check criteria(Parameter param, boolean raw, MatchCriteria criteria) {
+            return new Check(param, raw, Double.NaN, Double.NaN, null, null, false, criteria);
+        }
+    }
+
+    /**
+     * The MDB definition of the verifier
+     */
+    public static class Definition extends CustomAlgorithm {
+        private static final long serialVersionUID = 1L;
+
+        // for each check: the index of the input, raw or engineering value, the numeric range or the string value,
+        // the command argument the range is relative to, the match criteria of the expressions not compiled
+        final int[] inputIdx;
+        final boolean[] raw;
+        final double[] lo;
+        final double[] hi;
+        final String[] str;
+        final String[] arg;
+        final boolean[] float32;
+        final MatchCriteria[] criteria;
+        final boolean hasArguments;
+        final boolean hasCriteria;
+
+        public Definition(String name, List<Check> checks) {
+            super(name);
+            int n = checks.size();
+            inputIdx = new int[n];
+            raw = new boolean[n];
+            lo = new double[n];
+            hi = new double[n];
+            str = new String[n];
+            arg = new String[n];
+            float32 = new boolean[n];
+            criteria = new MatchCriteria[n];
+            boolean hasArgs = false;
+            boolean hasCrit = false;
+            List<Parameter> params = new ArrayList<>();
+            List<InputParameter> inputs = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                Check c = checks.get(i);
+                int k = params.indexOf(c.param());
+                if (k == -1) {
+                    k = params.size();
+                    params.add(c.param());
+                    // across packets such that the initial context of the verifier gives the last value cache
+                    var ref = new ParameterInstanceRef(c.param(), !c.raw());
+                    ref.setRelativeTo(InstanceRelativeTo.CURRENT_ENTRY_ACROSS_PACKETS);
+                    inputs.add(new InputParameter(ref, "p" + k));
+                }
+                inputIdx[i] = k;
+                raw[i] = c.raw();
+                lo[i] = c.lo();
+                hi[i] = c.hi();
+                str[i] = c.str();
+                arg[i] = c.arg();
+                float32[i] = c.float32();
+                criteria[i] = c.criteria();
+                hasArgs |= c.arg() != null;
+                hasCrit |= c.criteria() != null;
+            }
+            hasArguments = hasArgs;
+            hasCriteria = hasCrit;
+            setScope(Scope.COMMAND_VERIFICATION);
+            setInputList(inputs);
+            setOutputList(Collections.emptyList());
+            setLanguage("java");
+            setAlgorithmText(CveVerifier.class.getName());
+        }
+
+        private Definition(Definition d) {
+            super(d.getName());
+            this.inputIdx = d.inputIdx;
+            this.raw = d.raw;
+            this.lo = d.lo;
+            this.hi = d.hi;
+            this.str = d.str;
+            this.arg = d.arg;
+            this.float32 = d.float32;
+            this.criteria = d.criteria;
+            this.hasArguments = d.hasArguments;
+            this.hasCriteria = d.hasCriteria;
+            setScope(d.getScope());
+            setInputList(d.getInputList());
+            setOutputList(d.getOutputList());
+            setLanguage(d.getLanguage());
+            setAlgorithmText(d.getAlgorithmText());
+            setQualifiedName(d.getQualifiedName());
+        }
+
+        /**
+         * Returns the names of the command arguments the checks refer to
+         */
+        public List<String> getArgumentNames() {
+            return Arrays.stream(arg).filter(a -> a != null).distinct().toList();
+        }
+
+        @Override
+        public CustomAlgorithm copy() {
+            return new Definition(this);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("CveVerifier[");
+            for (int i = 0; i < inputIdx.length; i++) {
+                if (i > 0) {
+                    sb.append(" && ");
+                }
+                String p = getInputList().get(inputIdx[i]).getParameterInstance().getParameter().getName()
+                        + (raw[i] ? ".raw" : "");
+                if (criteria[i] != null) {
+                    sb.append(criteria[i]);
+                } else if (arg[i] != null) {
+                    sb.append(p).append(" == ").append(arg[i]);
+                    if (hi[i] > 0) {
+                        sb.append(" +- ").append(hi[i]);
+                    }
+                } else if (str[i] != null) {
+                    sb.append(p).append(" == '").append(str[i]).append("'");
+                } else if (lo[i] == hi[i]) {
+                    sb.append(p).append(" == ").append(lo[i]);
+                } else {
+                    sb.append(lo[i]).append(" <= ").append(p).append(" <= ").append(hi[i]);
+                }
+            }
+            return sb.append("]").toString();
+        }
+    }
+
+    public CveVerifier(Algorithm algorithmDef, AlgorithmExecutionContext execCtx) {
+        super(algorithmDef, execCtx);
+        this.definition = (Definition) algorithmDef;
+        var inputs = algorithmDef.getInputList();
+        params = new Parameter[inputs.size()];
+        refs = new ParameterInstanceRef[inputs.size()];
+        values = new ParameterValue[inputs.size()];
+        for (int i = 0; i < params.length; i++) {
+            refs[i] = inputs.get(i).getParameterInstance();
+            params[i] = refs[i].getParameter();
+        }
+        lo = definition.lo;
+        hi = definition.hi;
+        if (definition.hasCriteria) {
+            evaluators = new MatchCriteriaEvaluator[definition.criteria.length];
+            for (int i = 0; i < evaluators.length; i++) {
+                if (definition.criteria[i] != null) {
+                    evaluators[i] = MatchCriteriaEvaluatorFactory.getEvaluator(definition.criteria[i]);
+                }
+            }
+        } else {
+            evaluators = null;
+        }
+        dispatcher = CveDispatcher.get(execCtx.getProcessorData());
+    }
+
+    /**
+     * Collects the values of the parameters from the update and returns true if at least one of them is present.
+     * <p>
+     * The first update (the initial context given when the verifier starts) binds the command arguments and takes the
+     * values from the last value cache, after which the verifier registers with the {@link CveDispatcher} and only
+     * looks at the updates marked by the dispatcher.
+     */
+    @Override
+    public boolean update(ProcessingContext pctx) {
+        if (registered) {
+            dispatcher.dispatch(pctx);
+            if (target != pctx) {
+                return false;
+            }
+        }
+        synchronized (this) {
+            boolean updated = false;
+            if (!registered) {
+                if (definition.hasArguments) {
+                    bindArguments(pctx.getCmdArgs());
+                }
+                for (int i = 0; i < params.length; i++) {
+                    ParameterValue pv = pctx.getParameterInstance(refs[i]);
+                    if (pv != null) {
+                        values[i] = pv;
+                        updated = true;
+                    }
+                }
+                dispatcher.register(this);
+                registered = true;
+            } else {
+                ParameterValueList tmParams = pctx.getTmParams();
+                for (int i = 0; i < params.length; i++) {
+                    ParameterValue pv = tmParams.getLastInserted(params[i]);
+                    if (pv != null) {
+                        values[i] = pv;
+                        updated = true;
+                    }
+                }
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Adds the values of the command arguments to the bounds of the checks relative to them. The checks on an
+     * argument without numeric value cannot be satisfied.
+     */
+    private void bindArguments(Map<Argument, ArgumentValue> args) {
+        Definition d = definition;
+        lo = d.lo.clone();
+        hi = d.hi.clone();
+        for (int i = 0; i < lo.length; i++) {
+            if (d.arg[i] == null) {
+                continue;
+            }
+            Value v = argumentValue(args, d.arg[i]);
+            double x = v == null ? Double.NaN : numericValue(v);
+            if (Double.isNaN(x)) {
+                log.warn("{}: no numeric value for the command argument {} (value: {}), the stage cannot succeed",
+                        d.getName(), d.arg[i], v);
+            }
+            lo[i] = d.float32[i] ? (float) (x + d.lo[i]) : x + d.lo[i];
+            hi[i] = d.float32[i] ? (float) (x + d.hi[i]) : x + d.hi[i];
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (registered) {
+            dispatcher.unregister(this);
+            registered = false;
+        }
+    }
+
+    @Override
+    public synchronized AlgorithmExecutionResult execute(long acqTime, long genTime, ProcessingContext pctx) {
+        if (matches()) {
+            List<RawEngValue> inputs = Arrays.asList(values.clone());
+            return new AlgorithmExecutionResult(inputs, VerificationResult.SUCCESS, Collections.emptyList());
+        } else {
+            return NO_RESULT;
+        }
+    }
+
+    /**
+     * Returns true if all the checks are satisfied by the last values of the parameters; the match criteria checks are
+     * evaluated last.
+     */
+    boolean matches() {
+        Definition d = definition;
+        for (int i = 0; i < d.inputIdx.length; i++) {
+            ParameterValue pv = values[d.inputIdx[i]];
+            if (pv == null) {
+                return false;
+            }
+            Value v = d.raw[i] ? pv.getRawValue() : pv.getEngValue();
+            if (v == null) {
+                return false;
+            }
+            if (d.criteria[i] != null) {
+                continue;
+            } else if (d.str[i] != null) {
+                if (!d.str[i].equals(stringValue(v))) {
+                    return false;
+                }
+            } else {
+                double x = numericValue(v);
+                if (!(x >= lo[i] && x <= hi[i])) {
+                    return false;
+                }
+            }
+        }
+        return !d.hasCriteria || matchesCriteria();
+    }
+
+    private boolean matchesCriteria() {
+        ParameterValueList pvlist = new ParameterValueList();
+        for (ParameterValue pv : values) {
+            pvlist.add(pv);
+        }
+        ProcessingContext pctx = new ProcessingContext(null, pvlist, null, null, null, 0);
+        for (MatchCriteriaEvaluator evaluator : evaluators) {
+            if (evaluator != null && evaluator.evaluate(pctx) != MatchResult.OK) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the raw value of the argument if available, otherwise the engineering value
+    static Value argumentValue(Map<Argument, ArgumentValue> args, String name) {
+        if (args == null) {
+            return null;
+        }
+        for (Map.Entry<Argument, ArgumentValue> e : args.entrySet()) {
+            if (name.equals(e.getKey().getName())) {
+                ArgumentValue av = e.getValue();
+                return av.getRawValue() != null ? av.getRawValue() : av.getEngValue();
+            }
+        }
+        return null;
+    }
+
+    static String stringValue(Value v) {
+        return switch (v.getType()) {
+        case STRING, ENUMERATED -> v.getStringValue();
+        default -> v.toString();
+        };
+    }
+
+    // NaN (not matching any range) for the non numeric values
+    static double numericValue(Value v) {
+        return switch (v.getType()) {
+        case UINT32, SINT32, UINT64, SINT64, FLOAT, DOUBLE -> v.toDouble();
+        default -> Double.NaN;
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package org.yamcs.scos2k;
+
+import org.yamcs.YConfiguration;
+import org.yamcs.algorithms.AlgorithmExecutionContext;
+import org.yamcs.mdb.AlgorithmCalibratorProc;
+import org.yamcs.mdb.NumericCalibrator;
+import org.yamcs.mdb.NumericCalibratorProc;
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.mdb.XtceProcessingException;
+import org.yamcs.parameter.Value;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.CustomAlgorithm;
+import org.yamcs.xtce.IntegerDataEncoding;
+
+/**
+ * Calibrator for the logarithmic calibrations (LGF):
+ *
+ * <pre>
+ * Y = 1 / [A0 + A1*ln(X) + A2*ln2(X) + A3*ln3(X) + A4*ln4(X)]
+ * </pre>
+ *
+ * The result is the same as the one of {@link LogCalibration#calibrate(double, double...)} but the coefficients are
+ * kept in fields instead of being passed in an array at each call.
+ * <p>
+ * If the loader option lgfTableBits is set and the parameter has an integer raw value of at most that many bits, the
+ * calibrated values of all the raw values are computed when the calibrator is instantiated and the calibration becomes
+ * a table lookup. The table contains the same values as computed otherwise; the raw values not covered by the table
+ * (for example the negative ones) are calibrated with the formula.
+ */
+public class LgfCalibrator implements AlgorithmCalibratorProc, NumericCalibrator {
+    Definition definition;
+    NumericCalibratorProc proc;
+    // calibrated values of the raw values 0, 1, 2,... or null if not used
+    double[] table;
+
+    /**
+     * The MDB definition of the calibrator
+     */
+    public static class Definition extends CustomAlgorithm {
+        private static final long serialVersionUID = 1L;
+
+        final double a0, a1, a2, a3, a4;
+        // maximum size in bits of the raw values for which the table is used; 0 = no table
+        final int tableBits;
+
+        public Definition(String name, double a0, double a1, double a2, double a3, double a4, int tableBits) {
+            super(name);
+            this.a0 = a0;
+            this.a1 = a1;
+            this.a2 = a2;
+            this.a3 = a3;
+            this.a4 = a4;
+            this.tableBits = tableBits;
+            setLanguage("java");
+            setAlgorithmText(LgfCalibrator.class.getName());
+        }
+
+        double calibrate(double x) {
+            // NaN like the LogCalibration which multiplies the infinite logarithm by 0
+            if (!(x > 0) || x == Double.POSITIVE_INFINITY) {
+                return Double.NaN;
+            }
+            double u = Math.log(x);
+            return 1 / (a0 + u * (a1 + u * (a2 + u * (a3 + u * a4))));
+        }
+
+        @Override
+        public CustomAlgorithm copy() {
+            Definition d = new Definition(getName(), a0, a1, a2, a3, a4, tableBits);
+            d.setQualifiedName(getQualifiedName());
+            return d;
+        }
+
+        @Override
+        public String toString() {
+            return "LgfCalibrator[" + a0 + ", " + a1 + ", " + a2 + ", " + a3 + ", " + a4 + "]";
+        }
+    }
+
+    @Override
+    public void init(CustomAlgorithm customAlgorithm, AlgorithmExecutionContext execCtx, YConfiguration config,
+            BaseDataType dtype) {
+        this.definition = (Definition) customAlgorithm;
+        this.proc = new NumericCalibratorProc(dtype, this);
+        if (dtype.getEncoding() instanceof IntegerDataEncoding ide && ide.getSizeInBits() <= definition.tableBits) {
+            table = new double[1 << ide.getSizeInBits()];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = definition.calibrate(i);
+            }
+        }
+    }
+
+    @Override
+    public double calibrate(double x) {
+        int i = (int) x;
+        if (table != null && i == x && i >= 0 && i < table.length) {
+            return table[i];
+        }
+        return definition.calibrate(x);
+    }
+
+    /**
+     * Calibrates all the values of the input array into the output array, which has to be at least as long.
+     */
+    public void calibrate(double[] in, double[] out) {
+        if (table != null) {
+            for (int k = 0; k < in.length; k++) {
+                out[k] = calibrate(in[k]);
+            }
+        } else {
+            Definition d = definition;
+            for (int k = 0; k < in.length; k++) {
+                out[k] = d.calibrate(in[k]);
+            }
+        }
+    }
+
+    @Override
+    public Value calibrate(Value raw, ProcessingContext ctx) throws XtceProcessingException {
+        return proc.calibrate(raw, ctx);
+    }
+
+    @Override
+    public Value decalibrate(Value v, ProcessingContext ctx) throws XtceProcessingException {
+        return proc.decalibrate(v, ctx);
+    }
+}
@@ -0,0 +1,151 @@
+package org.yamcs.scos2k;
+
+/**
+ * Minimal open addressing hash map with primitive long keys, used on the packet processing paths to look up values by
+ * the value of a parameter without boxing the key.
+ * <p>
+ * Null values cannot be stored.
+ */
+class LongObjectHashMap<V> {
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    LongObjectHashMap() {
+        this(8);
+    }
+
+    LongObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2 * expectedSize, 8) - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int k = slot(key);
+        Object v;
+        while ((v = values[k]) != null) {
+            if (keys[k] == key) {
+                return (V) v;
+            }
+            k = (k + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Adds the value if the key is not already in the map.
+     *
+     * @return the value already associated to the key or null if the value has been added
+     */
+    @SuppressWarnings("unchecked")
+    V putIfAbsent(long key, V value) {
+        int k = slot(key);
+        while (values[k] != null) {
+            if (keys[k] == key) {
+                return (V) values[k];
+            }
+            k = (k + 1) & mask;
+        }
+        keys[k] = key;
+        values[k] = value;
+        if (++size > (mask + 1) / 2) {
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * Associates the value to the key, replacing the previous value if any.
+     *
+     * @return the previous value associated to the key or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        int k = slot(key);
+        while (values[k] != null) {
+            if (keys[k] == key) {
+                V old = (V) values[k];
+                values[k] = value;
+                return old;
+            }
+            k = (k + 1) & mask;
+        }
+        keys[k] = key;
+        values[k] = value;
+        if (++size > (mask + 1) / 2) {
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the key from the map.
+     *
+     * @return the value associated to the key or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int k = slot(key);
+        while (values[k] != null) {
+            if (keys[k] == key) {
+                V old = (V) values[k];
+                removeAt(k);
+                size--;
+                return old;
+            }
+            k = (k + 1) & mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // backward shift deletion: moves into the freed slot the following entries of the cluster which would not be
+    // found anymore otherwise
+    private void removeAt(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int h = slot(keys[j]);
+            // the entry can be moved to i if its home slot is not in the cyclic interval (i, j]
+            if (j > i ? (h <= i || h > j) : (h <= i && h > j)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = null;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[2 * oldKeys.length];
+        values = new Object[2 * oldKeys.length];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int k = slot(oldKeys[i]);
+                while (values[k] != null) {
+                    k = (k + 1) & mask;
+                }
+                keys[k] = oldKeys[i];
+                values[k] = oldValues[i];
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -1,9 +1,14 @@
 package org.yamcs.scos2k;
 
+import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Formatter;
 import java.util.IllegalFormatException;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.yamcs.ConfigurationException;
 import org.yamcs.logging.Log;
@@ -18,16 +23,24 @@ import org.yamcs.parameter.UInt32Value;
 import org.yamcs.parameter.UInt64Value;
 import org.yamcs.parameter.Value;
 import org.yamcs.utils.AggregateUtil;
+import org.yamcs.xtce.InputParameter;
 import org.yamcs.xtce.Parameter;
 import org.yamcs.xtce.PathElement;
 
 /**
  * Creates messages (strings) from templates by substituting parameter values
+ * <p>
+ * The template is parsed once: the placeholders referring to algorithm inputs can be bound to the input index with
+ * {@link #bindInputs(List)} and the format specifications are parsed into {@link ValueFormat}s. The message is built
+ * into a builder reused from one call to the next.
  */
 public class MessageTemplate {
     final static Log log = new Log(MessageTemplate.class);
 
     final List<TemplatePart> parts;
+    private final StringBuilder sb = new StringBuilder();
+    // used for the format specifications not handled by the ValueFormat; writes into sb
+    private Formatter formatter;
 
     MessageTemplate(String template) {
         this(template, null);
@@ -68,27 +81,29 @@ public class MessageTemplate {
     }
 
     interface TemplatePart {
-        String format(ParameterValueResolver resolver);
+        void appendTo(MessageTemplate mt, ParameterValueResolver resolver);
     }
 
     record TextTemplatePart(String text) implements TemplatePart {
         @Override
-        public String format(ParameterValueResolver resolver) {
-            return text;
+        public void appendTo(MessageTemplate mt, ParameterValueResolver resolver) {
+            mt.sb.append(text);
         }
     }
 
-    class ParameterTemplatePart implements TemplatePart {
+    static class ParameterTemplatePart implements TemplatePart {
         Parameter para;
         String paraName;
+        // index of the algorithm input with the name paraName, -1 if not bound
+        int inputIndex = -1;
         boolean raw;
         PathElement[] path;
-        String format;
+        ValueFormat format;
 
         ParameterTemplatePart(String s, Mdb mdb) {
             String[] a = s.split(";");
             if (a.length > 1) {
-                this.format = a[1].trim();
+                this.format = new ValueFormat(a[1].trim());
                 s = a[0].trim();
             }
 
@@ -113,69 +128,234 @@ public class MessageTemplate {
         }
 
         @Override
-        public String format(ParameterValueResolver resolver) {
+        public void appendTo(MessageTemplate mt, ParameterValueResolver resolver) {
             RawEngValue pv = null;
             if (para != null) {
                 pv = resolver.resolve(para);
+            } else if (inputIndex >= 0) {
+                pv = resolver.resolve(inputIndex);
             } else {
                 pv = resolver.resolve(paraName);
             }
             if (pv == null) {
-                return null;
+                return;
             }
             Value v = raw ? pv.getRawValue() : pv.getEngValue();
             if (path != null) {
                 v = AggregateUtil.getMemberValue(v, path);
             }
             if (v == null) {
-                return null;
+                return;
             }
             if (format != null) {
-                try {
-                    return format(v);
-                } catch (IllegalFormatException e) {
-                    log.warn("Invalid format {} for parameter {}: {}", format, paraName, e.getMessage());
-                    return v.toString();
-                }
+                format.appendTo(mt, v, paraName);
             } else {
-                return v.toString();
+                mt.sb.append(v.toString());
             }
         }
 
         @Override
         public String toString() {
-            return "ParameterTemplatePart [para=" + para + ", paraName=" + paraName + ", raw=" + raw + ", path="
-                    + Arrays.toString(path) + ", format=" + format + "]";
+            return "ParameterTemplatePart [para=" + para + ", paraName=" + paraName + ", inputIndex=" + inputIndex
+                    + ", raw=" + raw + ", path=" + Arrays.toString(path) + ", format=" + format + "]";
+        }
+    }
+
+    /**
+     * Format specification of a placeholder ({name;format}), with the syntax of {@link String#format}.
+     * <p>
+     * The specifications made of one integer conversion (d, o, x or X) with an optional width and '-' or '0' flag,
+     * possibly surrounded by text, are parsed once and applied to the integer values without going through a
+     * {@link Formatter}. The other specifications and values are given to the {@link Formatter} of the template.
+     */
+    static class ValueFormat {
+        static final Pattern SPEC = Pattern.compile("%(\\d+\\$)?([-#+ 0,(<]*)(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+        static final boolean ASCII_DIGITS = DecimalFormatSymbols
+                .getInstance(Locale.getDefault(Locale.Category.FORMAT)).getZeroDigit() == '0';
+
+        final String format;
+        // set if the format can be applied directly to the integer values
+        boolean simple;
+        String prefix, suffix;
+        char conversion;
+        int width;
+        boolean leftJustify, zeroPad;
+
+        ValueFormat(String format) {
+            this.format = format;
+            parse();
+        }
+
+        private void parse() {
+            Matcher m = SPEC.matcher(format);
+            StringBuilder text = new StringBuilder();
+            int numSpecs = 0;
+            int last = 0;
+            while (m.find()) {
+                text.append(format, last, m.start());
+                last = m.end();
+                char c = m.group(6).charAt(0);
+                if (m.group(5) == null && c == '%' && m.group(2).isEmpty() && m.group(3) == null) {
+                    text.append('%');
+                    continue;
+                } else if (m.group(5) == null && c == 'n' && m.group(2).isEmpty() && m.group(3) == null) {
+                    text.append(System.lineSeparator());
+                    continue;
+                }
+                if (++numSpecs > 1) {
+                    return;
+                }
+                String flags = m.group(2);
+                if (m.group(1) != null || m.group(4) != null || m.group(5) != null
+                        || !(c == 'd' || c == 'o' || c == 'x' || c == 'X')
+                        || !(flags.isEmpty() || flags.equals("-") || flags.equals("0"))) {
+                    return;
+                }
+                conversion = c;
+                leftJustify = flags.equals("-");
+                zeroPad = flags.equals("0");
+                width = m.group(3) == null ? 0 : Integer.parseInt(m.group(3));
+                if ((leftJustify || zeroPad) && width == 0) {
+                    // invalid, let the Formatter report it
+                    return;
+                }
+                prefix = text.toString();
+                text.setLength(0);
+            }
+            text.append(format, last, format.length());
+            suffix = text.toString();
+            simple = numSpecs == 1 && (conversion != 'd' || ASCII_DIGITS);
         }
 
-        private String format(Value v) {
+        void appendTo(MessageTemplate mt, Value v, String paraName) {
+            if (simple) {
+                if (v instanceof SInt32Value v1) {
+                    appendInteger(mt.sb, v1.getSint32Value(), true);
+                    return;
+                } else if (v instanceof UInt32Value v1) {
+                    appendInteger(mt.sb, v1.getUint32Value(), true);
+                    return;
+                } else if (v instanceof SInt64Value v1) {
+                    appendInteger(mt.sb, v1.getSint64Value(), false);
+                    return;
+                } else if (v instanceof UInt64Value v1) {
+                    appendInteger(mt.sb, v1.getUint64Value(), false);
+                    return;
+                }
+            }
+            Object arg;
             if (v instanceof FloatValue v1) {
-                return String.format(format, v1.getFloatValue());
+                arg = v1.getFloatValue();
             } else if (v instanceof DoubleValue v1) {
-                return String.format(format, v1.getDoubleValue());
+                arg = v1.getDoubleValue();
             } else if (v instanceof SInt32Value v1) {
-                return String.format(format, v1.getSint32Value());
+                arg = v1.getSint32Value();
             } else if (v instanceof SInt64Value v1) {
-                return String.format(format, v1.getSint64Value());
+                arg = v1.getSint64Value();
             } else if (v instanceof UInt32Value v1) {
-                return String.format(format, v1.getUint32Value());
+                arg = v1.getUint32Value();
             } else if (v instanceof UInt64Value v1) {
-                return String.format(format, v1.getUint64Value());
+                arg = v1.getUint64Value();
             } else {
-                return v.toString();
+                mt.sb.append(v.toString());
+                return;
+            }
+            int length = mt.sb.length();
+            try {
+                mt.formatter().format(format, arg);
+            } catch (IllegalFormatException e) {
+                log.warn("Invalid format {} for parameter {}: {}", format, paraName, e.getMessage());
+                mt.sb.setLength(length);
+                mt.sb.append(v.toString());
+            }
+        }
+
+        // same output as the Formatter for the integer values passed as int (int32=true) or long
+        private void appendInteger(StringBuilder sb, long x, boolean int32) {
+            sb.append(prefix);
+            if (conversion == 'd' && width == 0) {
+                sb.append(x);
+            } else {
+                String digits;
+                if (conversion == 'd') {
+                    digits = Long.toString(x);
+                } else if (conversion == 'o') {
+                    digits = int32 ? Integer.toOctalString((int) x) : Long.toOctalString(x);
+                } else {
+                    digits = int32 ? Integer.toHexString((int) x) : Long.toHexString(x);
+                    if (conversion == 'X') {
+                        digits = digits.toUpperCase(Locale.ROOT);
+                    }
+                }
+                int pad = width - digits.length();
+                if (pad <= 0) {
+                    sb.append(digits);
+                } else if (leftJustify) {
+                    sb.append(digits);
+                    pad(sb, ' ', pad);
+                } else if (zeroPad) {
+                    int start = 0;
+                    if (digits.charAt(0) == '-') {
+                        sb.append('-');
+                        start = 1;
+                    }
+                    pad(sb, '0', pad);
+                    sb.append(digits, start, digits.length());
+                } else {
+                    pad(sb, ' ', pad);
+                    sb.append(digits);
+                }
+            }
+            sb.append(suffix);
+        }
+
+        private static void pad(StringBuilder sb, char c, int n) {
+            for (int i = 0; i < n; i++) {
+                sb.append(c);
             }
         }
+
+        @Override
+        public String toString() {
+            return format;
+        }
     }
 
-    public String format(ParameterValueResolver resolver) {
-        StringBuilder result = new StringBuilder();
-        for (var tp : parts) {
-            var s = tp.format(resolver);
-            if (s != null) {
-                result.append(s);
+    private Formatter formatter() {
+        if (formatter == null) {
+            formatter = new Formatter(sb);
+        }
+        return formatter;
+    }
+
+    /**
+     * Binds the placeholders {name} to the index of the algorithm input having that name, such that they are resolved
+     * with {@link ParameterValueResolver#resolve(int)}.
+     */
+    public void bindInputs(List<InputParameter> inputList) {
+        for (TemplatePart tp : parts) {
+            if (tp instanceof ParameterTemplatePart ptp && ptp.para == null) {
+                for (int i = 0; i < inputList.size(); i++) {
+                    if (ptp.paraName.equals(inputList.get(i).getInputName())) {
+                        ptp.inputIndex = i;
+                        break;
+                    }
+                }
             }
         }
-        return result.toString();
+    }
+
+    /**
+     * Returns the message obtained by replacing the placeholders with the values given by the resolver.
+     * <p>
+     * The placeholders whose value cannot be resolved are replaced by the empty string.
+     */
+    public synchronized String format(ParameterValueResolver resolver) {
+        sb.setLength(0);
+        for (var tp : parts) {
+            tp.appendTo(this, resolver);
+        }
+        return sb.toString();
     }
 
     /**
@@ -197,5 +377,15 @@ public class MessageTemplate {
          * may return null
          */
         RawEngValue resolve(String name);
+
+        /**
+         * return the value of the algorithm input with the given index, for the placeholders bound with
+         * {@link MessageTemplate#bindInputs(List)}.
+         * <p>
+         * may return null
+         */
+        default RawEngValue resolve(int inputIndex) {
+            return null;
+        }
     }
 }
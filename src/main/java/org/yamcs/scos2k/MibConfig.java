@@ -13,12 +13,14 @@ public class MibConfig {
     // number of bytes in the fractional part that are used by the obt handled by the TCO
     // if the parameters or arguments have less than this, they are shifted to the left
     int tcoFineBytes = -1;
+    // if true, the MIB tables are tokenized in parallel before building the XTCE objects
+    boolean parallelIngestion = false;
 
 
 
     @Override
     public String toString() {
         return "MibConfig [timeEpoch=" + timeEpoch + ", strict=" + strict + ", generatePusNamespace="
-                + generatePusNamespace + ", tcoService=" + tcoService + ", tcoFineBytes=" + tcoFineBytes + "]";
+                + generatePusNamespace + ", tcoService=" + tcoService + ", tcoFineBytes=" + tcoFineBytes + ", parallelIngestion=" + parallelIngestion + "]";
     }
 }
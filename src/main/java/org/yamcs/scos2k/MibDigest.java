@@ -0,0 +1,136 @@
+package org.yamcs.scos2k;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.yamcs.utils.StringConverter;
+
+/**
+ * Computes a digest over the content of a MIB directory and the loader configuration.
+ * <p>
+ * The digest is used to decide if the MDB serialized by Yamcs in its cache directory can be reused instead of loading
+ * again the MIB.
+ * <p>
+ * The .dat files in the MIB directory and all the files in the synthetic/ sub-directory are included, together with
+ * their relative path. The version of this plugin is also included, such that an upgrade invalidates the cache; for
+ * the snapshot versions the build time is added as well. The version is read from the plugin.properties generated by
+ * the yamcs-maven-plugin; if it cannot be found, no digest is computed and the serialized MDB is never reused.
+ */
+class MibDigest {
+    static final String SYNTHETIC_DIR = "synthetic";
+    static final String PLUGIN_PROPERTIES = "/META-INF/yamcs/" + Scos2kPlugin.class.getName()
+            + "/plugin.properties";
+
+    /**
+     * Returns the digest of the MIB content and loader configuration, or null if the version of the plugin is unknown.
+     */
+    static String compute(String path, Map<String, Object> config) throws IOException {
+        String version = pluginVersion();
+        if (version == null) {
+            return null;
+        }
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        md.update(("version=" + version + "\n").getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder sb = new StringBuilder();
+        appendCanonical(sb, config);
+        md.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        Path dir = Path.of(path);
+        byte[] buf = new byte[65536];
+        for (Path p : listFiles(dir, 1)) {
+            if (p.getFileName().toString().endsWith(".dat")) {
+                update(md, dir, p, buf);
+            }
+        }
+        Path syntheticDir = dir.resolve(SYNTHETIC_DIR);
+        if (Files.isDirectory(syntheticDir)) {
+            for (Path p : listFiles(syntheticDir, Integer.MAX_VALUE)) {
+                update(md, dir, p, buf);
+            }
+        }
+        return StringConverter.arrayToHexString(md.digest());
+    }
+
+    /**
+     * Returns the version of the plugin, including the build time for the snapshot versions, or null if the plugin
+     * properties are not available.
+     */
+    static String pluginVersion() throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = MibDigest.class.getResourceAsStream(PLUGIN_PROPERTIES)) {
+            if (in == null) {
+                return null;
+            }
+            props.load(in);
+        }
+        String version = props.getProperty("version");
+        if (version != null && version.endsWith("-SNAPSHOT")) {
+            String generated = props.getProperty("generated");
+            if (generated == null) {
+                return null;
+            }
+            version += "@" + generated;
+        }
+        return version;
+    }
+
+    // regular files sorted by name such that the digest does not depend on the directory listing order
+    private static List<Path> listFiles(Path dir, int maxDepth) throws IOException {
+        try (Stream<Path> s = Files.walk(dir, maxDepth)) {
+            return s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void update(MessageDigest md, Path dir, Path file, byte[] buf) throws IOException {
+        md.update(dir.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+            }
+        }
+        md.update((byte) 0);
+    }
+
+    // writes the configuration with the keys sorted, such that the digest does not depend on the map implementation
+    static void appendCanonical(StringBuilder sb, Object o) {
+        if (o instanceof Map<?, ?> m) {
+            sb.append('{');
+            Map<String, Object> sorted = new TreeMap<>();
+            m.forEach((k, v) -> sorted.put(String.valueOf(k), v));
+            sorted.forEach((k, v) -> {
+                sb.append(k).append(':');
+                appendCanonical(sb, v);
+                sb.append(',');
+            });
+            sb.append('}');
+        } else if (o instanceof List<?> l) {
+            sb.append('[');
+            for (Object v : l) {
+                appendCanonical(sb, v);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else {
+            sb.append(o);
+        }
+    }
+}
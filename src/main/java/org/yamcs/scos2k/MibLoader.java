@@ -13,7 +13,11 @@ import org.yamcs.xtce.SpaceSystem;
  * It's split in four files: MibLoader, TcMibLoader, TmMibLoader and BaseMibLoader
  */
 public class MibLoader extends TcMibLoader {
-    
+    // all the tables read by the loader, in the order they are used
+    static final String[] TABLES = { "vdf",
+            "cur", "caf", "cap", "txf", "txp", "mcf", "lgf", "pcf", "pic", "pid", "tpcf", "plf", "vpd", "ocf", "ocp",
+            "tcp", "pcpc", "pcdf", "cca", "ccs", "paf", "pas", "cpc", "cdf", "ccf", "prf", "prv", "ptv", "cve", "cvs",
+            "cvp" };
 
     public MibLoader(YConfiguration config) throws ConfigurationException {
         super(config);
@@ -22,6 +26,9 @@ public class MibLoader extends TcMibLoader {
     @Override
     public SpaceSystem load() throws ConfigurationException, DatabaseLoadException {
         log.debug("Loading SCOS2000 MIB from {}", path);
+        if (conf.parallelIngestion) {
+            preloadTables(TABLES);
+        }
         loadVdf();
         loadTelemetry();
         loadCommands();
@@ -8,6 +8,7 @@ import org.yamcs.xtce.AggregateArgumentType;
 import org.yamcs.xtce.AggregateDataType;
 import org.yamcs.xtce.AlgorithmCalibrator;
 import org.yamcs.xtce.BinaryDataEncoding;
+import org.yamcs.xtce.Calibrator;
 import org.yamcs.xtce.Comparison;
 import org.yamcs.xtce.ComparisonList;
 import org.yamcs.xtce.Condition;
@@ -54,15 +55,22 @@ public class MibLoaderBits {
         String filename;
         int lineNum;
         final MibConfig conf;
+        // TCO calibrators shared by the time encodings with the same (ptc, pfc)
+        final Map<String, Calibrator> tcoCalibrators;
 
         MibLoaderContext(MibConfig conf, String filename, int lineNum) {
+            this(conf, filename, lineNum, new HashMap<>());
+        }
+
+        private MibLoaderContext(MibConfig conf, String filename, int lineNum, Map<String, Calibrator> tcoCalibrators) {
             this.conf = conf;
             this.filename = filename;
             this.lineNum = lineNum;
+            this.tcoCalibrators = tcoCalibrators;
         }
 
         public MibLoaderContext clone() {
-            return new MibLoaderContext(conf, filename, lineNum);
+            return new MibLoaderContext(conf, filename, lineNum, tcoCalibrators);
         }
 
     }
@@ -233,11 +241,14 @@ public class MibLoaderBits {
                                 + ") numFineBytes greater than configuration tcoFineBytes");
                     }
                 }
-                CustomAlgorithm tcoCalibrator = new CustomAlgorithm("tco_calibrator_" + ptc + "_" + pfc);
-                tcoCalibrator.setLanguage("java");
-                tcoCalibrator.setAlgorithmText(
-                        "org.yamcs.algo.TcoCalibrator({tcoService: '" + tcoService + "'" + tfb + "})");
-                encoding.setDefaultCalibrator(new AlgorithmCalibrator(tcoCalibrator));
+                String algoName = "tco_calibrator_" + ptc + "_" + pfc;
+                String algoText = "org.yamcs.algo.TcoCalibrator({tcoService: '" + tcoService + "'" + tfb + "})";
+                encoding.setDefaultCalibrator(ctx.tcoCalibrators.computeIfAbsent(algoName, k -> {
+                    CustomAlgorithm tcoCalibrator = new CustomAlgorithm(algoName);
+                    tcoCalibrator.setLanguage("java");
+                    tcoCalibrator.setAlgorithmText(algoText);
+                    return new AlgorithmCalibrator(tcoCalibrator);
+                }));
             }
             return encoding;
         } else if (ptc == 10) {
@@ -0,0 +1,260 @@
+package org.yamcs.scos2k;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.yamcs.mdb.DatabaseLoadException;
+import org.yamcs.utils.IntArray;
+
+/**
+ * One MIB ASCII table (a .dat file) memory mapped and indexed by rows.
+ * <p>
+ * The tables do not depend on each other at this stage, so they can be indexed concurrently before the XTCE objects
+ * are built sequentially by the loader.
+ * <p>
+ * The table is read through a cursor: {@link #next()} moves to the next row and splits it into columns, the columns
+ * are then parsed directly from the mapped bytes. Strings are only created when explicitly requested. The files are
+ * decoded as UTF-8 (the platform charset used by the previous versions on any recent system); the separators and the
+ * numbers being ASCII, the rows are split and the numbers parsed on the bytes.
+ * <p>
+ * The number of columns of a row follows the {@link String#split(String)} convention: the trailing empty columns are
+ * not counted.
+ */
+class MibTable {
+    final String name;
+    final String file;
+    private final ByteBuffer buf;
+    private final char separator;
+
+    // start and end (exclusive, without the line terminator) offset of each row
+    private final IntArray rowStart;
+    private final IntArray rowEnd;
+    // line number in the file of each row
+    private final IntArray lineNums;
+
+    // cursor
+    private int row = -1;
+    private int numColumns;
+    private int[] colStart = new int[32];
+    private int[] colEnd = new int[32];
+    private byte[] tmp = new byte[256];
+
+    private MibTable(String name, String file, ByteBuffer buf, char separator) {
+        this.name = name;
+        this.file = file;
+        this.buf = buf;
+        this.separator = separator;
+        int n = buf.limit() / 64 + 1;
+        this.rowStart = new IntArray(n);
+        this.rowEnd = new IntArray(n);
+        this.lineNums = new IntArray(n);
+    }
+
+    /**
+     * Maps and indexes the file path/name.dat
+     * <p>
+     * A comment line at the beginning of the file is skipped.
+     */
+    static MibTable read(String path, String name, char separator) throws DatabaseLoadException {
+        String file = path + "/" + name + ".dat";
+        ByteBuffer buf;
+        try (FileChannel fc = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+            long size = fc.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new DatabaseLoadException("File " + file + " is too large");
+            }
+            buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (NoSuchFileException e) {
+            throw new DatabaseLoadException("Cannot find " + file);
+        } catch (IOException e) {
+            throw new DatabaseLoadException("Error reading from " + file + ": " + e.getMessage(), e);
+        }
+        MibTable table = new MibTable(name, file, buf, separator);
+        table.index();
+        return table;
+    }
+
+    private void index() {
+        int size = buf.limit();
+        int start = 0;
+        int lineNum = 1;
+        for (int i = 0; i < size; i++) {
+            if (buf.get(i) == '\n') {
+                addRow(start, i, lineNum++);
+                start = i + 1;
+            }
+        }
+        if (start < size) {
+            addRow(start, size, lineNum);
+        }
+    }
+
+    private void addRow(int start, int end, int lineNum) {
+        if (end > start && buf.get(end - 1) == '\r') {
+            end--;
+        }
+        if (lineNum == 1 && end > start && buf.get(start) == '#') {
+            return;
+        }
+        rowStart.add(start);
+        rowEnd.add(end);
+        lineNums.add(lineNum);
+    }
+
+    int size() {
+        return rowStart.size();
+    }
+
+    /**
+     * Moves the cursor to the next row.
+     *
+     * @return false if there are no more rows
+     */
+    boolean next() {
+        if (row + 1 >= rowStart.size()) {
+            row = rowStart.size();
+            return false;
+        }
+        row++;
+        int start = rowStart.get(row);
+        int end = rowEnd.get(row);
+        numColumns = 0;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buf.get(i) == separator) {
+                if (numColumns == colStart.length) {
+                    colStart = Arrays.copyOf(colStart, 2 * numColumns);
+                    colEnd = Arrays.copyOf(colEnd, 2 * numColumns);
+                }
+                colStart[numColumns] = start;
+                colEnd[numColumns] = i;
+                numColumns++;
+                start = i + 1;
+            }
+        }
+        if (numColumns > 1) {
+            while (numColumns > 0 && colStart[numColumns - 1] == colEnd[numColumns - 1]) {
+                numColumns--;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * line number of the current row, or of the last row if the cursor is past the end of the table
+     */
+    int lineNum() {
+        if (row < 0 || lineNums.isEmpty()) {
+            return 0;
+        }
+        return lineNums.get(Math.min(row, lineNums.size() - 1));
+    }
+
+    int numColumns() {
+        return numColumns;
+    }
+
+    boolean isEmpty(int col) {
+        return col >= numColumns || colStart[col] == colEnd[col];
+    }
+
+    String getString(int col) {
+        int start = colStart[col];
+        int len = colEnd[col] - start;
+        if (len > tmp.length) {
+            tmp = new byte[len];
+        }
+        buf.get(start, tmp, 0, len);
+        return new String(tmp, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     *
+     * @return true if the column is equal to the given ASCII string
+     */
+    boolean equals(int col, String s) {
+        int start = colStart[col];
+        int len = colEnd[col] - start;
+        if (len != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if ((buf.get(start + i) & 0xFF) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int parseInt(int col) throws NumberFormatException {
+        long x = parseLong(col);
+        if (x < Integer.MIN_VALUE || x > Integer.MAX_VALUE) {
+            throw new NumberFormatException();
+        }
+        return (int) x;
+    }
+
+    long parseLong(int col) throws NumberFormatException {
+        int pos = colStart[col];
+        int end = colEnd[col];
+        boolean negative = false;
+        if (pos < end) {
+            byte b = buf.get(pos);
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                pos++;
+            }
+        }
+        if (end - pos > 18) {
+            // may overflow, let the JDK handle it
+            return Long.parseLong(getString(col));
+        }
+        long x = parseDigits(pos, end);
+        return negative ? -x : x;
+    }
+
+    long parseUnsignedLong(int col) throws NumberFormatException {
+        int pos = colStart[col];
+        int end = colEnd[col];
+        if (end - pos > 18 || (pos < end && buf.get(pos) == '+')) {
+            return Long.parseUnsignedLong(getString(col));
+        }
+        return parseDigits(pos, end);
+    }
+
+    private long parseDigits(int pos, int end) throws NumberFormatException {
+        if (pos == end) {
+            throw new NumberFormatException();
+        }
+        long x = 0;
+        for (int i = pos; i < end; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                throw new NumberFormatException();
+            }
+            x = 10 * x + d;
+        }
+        return x;
+    }
+
+    double parseDouble(int col) throws NumberFormatException {
+        return Double.parseDouble(getString(col));
+    }
+
+    /**
+     *
+     * @return all the columns of the current row
+     */
+    String[] toArray() {
+        String[] cols = new String[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            cols[i] = getString(i);
+        }
+        return cols;
+    }
+}
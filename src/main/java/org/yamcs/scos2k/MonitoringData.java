@@ -388,6 +388,14 @@ public class MonitoringData {
             return (type << 8) | stype;
         }
 
+        /**
+         * same as {@link PidRecord#getApidTypeSubtype()}; the records not specific to an APID (apid=-1) have a negative
+         * key which does not collide with any APID specific one.
+         */
+        public int getApidTypeSubtype() {
+            return (apid << 16) | (type << 8) | stype;
+        }
+
         @Override
         public String toString() {
             return "PicRecord [type=" + type + ", stype=" + stype + ", apid=" + apid + ", pi1Offset=" + pi1Offset
@@ -0,0 +1,126 @@
+package org.yamcs.scos2k;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.yamcs.mdb.ProcessingContext;
+import org.yamcs.mdb.ProcessorData;
+import org.yamcs.parameter.ParameterValue;
+import org.yamcs.parameter.ParameterValueList;
+import org.yamcs.xtce.Parameter;
+
+/**
+ * Routes the PUS1 reports to the {@link Pus1Verifier} waiting for them.
+ * <p>
+ * Yamcs creates one verifier per command stage and offers each telemetry update to all of them. Once its command has
+ * been released, a verifier registers with the dispatcher of its processor under the key (apid, sequence count,
+ * stage). For each telemetry update, the dispatcher reads the APID, sequence count and sub-type of the PUS1 report
+ * once and looks up the verifier expecting it; all the other verifiers can ignore the update without reading their
+ * inputs.
+ */
+class Pus1Dispatcher {
+    private static final Map<ProcessorData, Pus1Dispatcher> dispatchers = new WeakHashMap<>();
+
+    final Parameter rcvdApid;
+    final Parameter rcvdSeq;
+    final Parameter reportSubType;
+
+    // (apid, seq, stage) -> verifiers waiting for the report, chained through Pus1Verifier.next
+    private final LongObjectHashMap<Pus1Verifier> waiting = new LongObjectHashMap<>();
+
+    // the last telemetry update and the verifiers it is addressed to
+    private ProcessingContext lastCtx;
+    private Pus1Verifier lastTargets;
+
+    private Pus1Dispatcher(Parameter rcvdApid, Parameter rcvdSeq, Parameter reportSubType) {
+        this.rcvdApid = rcvdApid;
+        this.rcvdSeq = rcvdSeq;
+        this.reportSubType = reportSubType;
+    }
+
+    /**
+     * Returns the dispatcher of the processor for the PUS1 reports given by the three parameters, or null if the
+     * processor already has a dispatcher for other parameters.
+     */
+    static Pus1Dispatcher get(ProcessorData pdata, Parameter rcvdApid, Parameter rcvdSeq, Parameter reportSubType) {
+        synchronized (dispatchers) {
+            Pus1Dispatcher d = dispatchers.computeIfAbsent(pdata,
+                    k -> new Pus1Dispatcher(rcvdApid, rcvdSeq, reportSubType));
+            if (d.rcvdApid != rcvdApid || d.rcvdSeq != rcvdSeq || d.reportSubType != reportSubType) {
+                return null;
+            }
+            return d;
+        }
+    }
+
+    static long key(int apid, int seq, int stage) {
+        return ((apid & 0xFFFFFFL) << 40) | ((seq & 0xFFFFFFFFL) << 8) | stage;
+    }
+
+    synchronized void register(long key, Pus1Verifier v) {
+        v.next = waiting.put(key, v);
+        lastCtx = null;
+    }
+
+    synchronized void unregister(long key, Pus1Verifier v) {
+        Pus1Verifier head = waiting.get(key);
+        if (head == v) {
+            if (v.next == null) {
+                waiting.remove(key);
+            } else {
+                waiting.put(key, v.next);
+            }
+        } else {
+            for (Pus1Verifier p = head; p != null; p = p.next) {
+                if (p.next == v) {
+                    p.next = v.next;
+                    break;
+                }
+            }
+        }
+        v.next = null;
+        lastCtx = null;
+    }
+
+    /**
+     * Returns true if the telemetry update contains a PUS1 report addressed to the verifier.
+     */
+    synchronized boolean isTarget(ProcessingContext pctx, Pus1Verifier v) {
+        if (pctx != lastCtx) {
+            lastCtx = pctx;
+            lastTargets = find(pctx.getTmParams());
+        }
+        for (Pus1Verifier t = lastTargets; t != null; t = t.next) {
+            if (t == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized int size() {
+        return waiting.size();
+    }
+
+    private Pus1Verifier find(ParameterValueList tmParams) {
+        if (tmParams == null) {
+            return null;
+        }
+        ParameterValue seqPv = tmParams.getLastInserted(rcvdSeq);
+        if (seqPv == null) {
+            return null;
+        }
+        ParameterValue apidPv = tmParams.getLastInserted(rcvdApid);
+        ParameterValue stypePv = tmParams.getLastInserted(reportSubType);
+        if (apidPv == null || stypePv == null) {
+            return null;
+        }
+        int stype = stypePv.getRawValue().getUint32Value();
+        // success reports have the odd sub-types 1, 3, 5, 7, the failure reports the following even ones
+        int stage = (stype & 1) == 1 ? stype : stype - 1;
+        if (stage <= 0) {
+            return null;
+        }
+        return waiting.get(key(apidPv.getRawValue().getUint32Value(), seqPv.getRawValue().getUint32Value(), stage));
+    }
+}
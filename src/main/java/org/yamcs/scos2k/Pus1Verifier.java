@@ -52,13 +52,24 @@ import org.yamcs.xtce.Parameter;
  * <li>If <code>reportSubType == verificationStage + 1</code>, the verifier returns failure, using the provided template
  * to construct the failure message. The template can use the inputs of the algorithm for message formatting.</li>
  * </ul>
+ * <p>
+ * Once the sentApid and sentSeqCount are known, the verifier registers with the {@link Pus1Dispatcher} of the
+ * processor and only reads its inputs when the dispatcher finds that a telemetry update contains the PUS1 report
+ * addressed to it. Until then (or if the report parameters are not the same as the ones of the dispatcher), the inputs
+ * are read at each update.
  */
 public class Pus1Verifier extends AbstractAlgorithmExecutor {
 
     private final int verificationStage;
     private final MessageTemplate template;
+    private final InputResolver resolver = new InputResolver();
     public static AlgorithmExecutionResult NO_RESULT = new AlgorithmExecutionResult(Collections.emptyList());
 
+    private final Pus1Dispatcher dispatcher;
+    // key under which the verifier is registered with the dispatcher, -1 if not registered
+    private long dispatchKey = -1;
+    // next verifier registered under the same key
+    Pus1Verifier next;
 
     public Pus1Verifier(Algorithm algorithmDef, AlgorithmExecutionContext execCtx, HashMap<String, Object> config) {
         super(algorithmDef, execCtx);
@@ -67,14 +78,51 @@ public class Pus1Verifier extends AbstractAlgorithmExecutor {
         verificationStage = yc.getInt("stage");
 
         if (yc.containsKey("template")) {
-            template = new MessageTemplate(yc.getString("template"));
+            template = new MessageTemplate(yc.getString("template"), execCtx.getMdb());
+            template.bindInputs(algorithmDef.getInputList());
         } else {
             template = null;
         }
+        var inputs = algorithmDef.getInputList();
+        if (inputs.size() >= 5 && inputs.get(2).getParameterInstance() != null
+                && inputs.get(3).getParameterInstance() != null && inputs.get(4).getParameterInstance() != null) {
+            dispatcher = Pus1Dispatcher.get(execCtx.getProcessorData(),
+                    inputs.get(2).getParameterInstance().getParameter(),
+                    inputs.get(3).getParameterInstance().getParameter(),
+                    inputs.get(4).getParameterInstance().getParameter());
+        } else {
+            dispatcher = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean update(ProcessingContext pctx) {
+        if (dispatcher == null) {
+            return super.update(pctx);
+        }
+        if (dispatchKey == -1) {
+            boolean updated = super.update(pctx);
+            if (inputValues.get(0) != null && inputValues.get(1) != null) {
+                int sentApid = inputValues.get(0).getRawValue().getUint32Value();
+                int sentSeq = inputValues.get(1).getEngValue().getSint32Value();
+                dispatchKey = Pus1Dispatcher.key(sentApid, sentSeq, verificationStage);
+                dispatcher.register(dispatchKey, this);
+            }
+            return updated;
+        }
+        return dispatcher.isTarget(pctx, this) && super.update(pctx);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (dispatchKey != -1) {
+            dispatcher.unregister(dispatchKey, this);
+            dispatchKey = -1;
+        }
     }
 
     @Override
-    public AlgorithmExecutionResult execute(long acqTime, long genTime, ProcessingContext pctx) {
+    public synchronized AlgorithmExecutionResult execute(long acqTime, long genTime, ProcessingContext pctx) {
         for (int i = 0; i < 5; i++) {
             if (inputValues.get(i) == null) {
                 log.trace("Returning NO_RESULT because no value available for input {}", i);
@@ -100,25 +148,9 @@ public class Pus1Verifier extends AbstractAlgorithmExecutor {
         } else if (reportSubType == verificationStage + 1) {
             String msg = null;
             if (template != null) {
-
-                msg = template.format(new ParameterValueResolver() {
-                    @Override
-                    public RawEngValue resolve(String name) {
-                        var algInputList = algorithmDef.getInputList();
-                        for (int i = 0; i < algInputList.size(); i++) {
-                            var alginput = algInputList.get(i);
-                            if (name.equals(alginput.getInputName())) {
-                                return inputValues.get(i);
-                            }
-                        }
-                        return null;
-                    }
-
-                    @Override
-                    public RawEngValue resolve(Parameter p) {
-                        return pctx.getTmParams().getLastInserted(p);
-                    }
-                });
+                resolver.pctx = pctx;
+                msg = template.format(resolver);
+                resolver.pctx = null;
             }
             VerificationResult result = new VerificationResult(false, msg);
             return new AlgorithmExecutionResult(inputValues, result, Collections.emptyList());
@@ -126,4 +158,28 @@ public class Pus1Verifier extends AbstractAlgorithmExecutor {
             return NO_RESULT;
         }
     }
+
+    /**
+     * Resolves the template placeholders to the algorithm inputs (bound by index when the verifier is created) or to
+     * the parameters of the telemetry update being processed.
+     */
+    private class InputResolver implements ParameterValueResolver {
+        ProcessingContext pctx;
+
+        @Override
+        public RawEngValue resolve(int inputIndex) {
+            return inputValues.get(inputIndex);
+        }
+
+        @Override
+        public RawEngValue resolve(Parameter p) {
+            return pctx.getTmParams().getLastInserted(p);
+        }
+
+        @Override
+        public RawEngValue resolve(String name) {
+            // the names of the inputs are bound to their index, the others cannot be resolved
+            return null;
+        }
+    }
 }
@@ -45,11 +45,13 @@ import org.yamcs.xtce.DataEncoding;
 import org.yamcs.xtce.DynamicIntegerValue;
 import org.yamcs.mdb.DatabaseLoadException;
 import org.yamcs.xtce.EnumeratedArgumentType;
+import org.yamcs.xtce.EnumeratedParameterType;
 import org.yamcs.xtce.FixedIntegerValue;
 import org.yamcs.xtce.FixedValueEntry;
 import org.yamcs.xtce.FloatArgumentType;
 import org.yamcs.xtce.FloatDataEncoding;
 import org.yamcs.xtce.FloatDataType;
+import org.yamcs.xtce.FloatParameterType;
 import org.yamcs.xtce.InputParameter;
 import org.yamcs.xtce.IntegerArgumentType;
 import org.yamcs.xtce.IntegerDataEncoding;
@@ -74,6 +76,8 @@ import org.yamcs.xtce.Significance.Levels;
 import org.yamcs.xtce.util.ParameterReference;
 import org.yamcs.xtce.SplineCalibrator;
 import org.yamcs.xtce.SplinePoint;
+import org.yamcs.xtce.StringDataEncoding;
+import org.yamcs.xtce.StringParameterType;
 import org.yamcs.xtce.TransmissionConstraint;
 import org.yamcs.xtce.UnitType;
 import org.yamcs.xtce.ValueEnumeration;
@@ -88,10 +92,14 @@ public abstract class TcMibLoader extends TmMibLoader {
     Significance SIGNIF_NONE = new Significance(Levels.NONE, null);
     Map<String, List<CdfRecord>> cdfRecords = new HashMap<>();
     Map<String, CcaRecord> ccaRecords = new HashMap<>();
+    // CCA_NUMBR -> calibrator shared by all the arguments using the curve
+    Map<String, SplineCalibrator> ccaCalibrators = new HashMap<>();
     private Map<String, List<ValueEnumerationRange>> enumerationRanges = new HashMap<>();
     private Map<String, List<ValueEnumeration>> enumerations = new HashMap<>();
 
     private Map<Integer, EnumeratedArgumentType.Builder> parameterIdArgs = new HashMap<>();
+    // argument types shared by all the occurrences of a CPC parameter, see createArgument
+    private Map<String, ArgumentType> argumentTypes = new HashMap<>();
     // default size in bytes of the size tag for variable length strings and bytestrings
     private int vblParamLengthBytes = 1;
     // if true, allow users to change the APID of the commands sent
@@ -440,37 +448,7 @@ public abstract class TcMibLoader extends TmMibLoader {
     }
 
     SequenceContainer findContainer(int apid, int type, int subType) {
-        for (var seq : spaceSystem.getSequenceContainers()) {
-            if (seq.getRestrictionCriteria() instanceof ComparisonList clist) {
-                boolean foundApid = false;
-                boolean foundType = false;
-                boolean foundSubType = false;
-                for (var comp : clist.getComparisonList()) {
-                    if (comp.getRef() instanceof ParameterInstanceRef pir) {
-                        Parameter p = pir.getParameter();
-                        if (PARA_NAME_APID.equals(p.getName())
-                                && comp.getStringValue().equals(Integer.toString(apid))) {
-                            foundApid = true;
-                        }
-                        if (PARA_NAME_PUS_TYPE.equals(p.getName())
-                                && comp.getStringValue().equals(Integer.toString(type))) {
-                            foundType = true;
-                        }
-                        if (PARA_NAME_PUS_STYPE.equals(p.getName())
-                                && comp.getStringValue().equals(Integer.toString(subType))) {
-                            foundSubType = true;
-                        }
-                    }
-
-                }
-
-                if (foundApid && foundType && foundSubType) {
-                    return seq;
-                }
-            }
-        }
-
-        return null;
+        return level1Containers.get((apid << 16) | (type << 8) | subType);
     }
 
     boolean hasReadOnlyArguments(String cname) {
@@ -724,6 +702,24 @@ public abstract class TcMibLoader extends TmMibLoader {
         CpcRecord cpc = cdf.cpc;
         Argument arg = new Argument(cpc.pname);
         arg.setShortDescription(cpc.descr);
+
+        // the type depends only on the CPC record and on the CDF_VPLB, except for the parameter id enumerations
+        // obtained for each command from the custom provider
+        boolean perCommand = cpc.ptc != 11 && "P".equals(cpc.categ) && parameterIdEnumerationsProvider != null;
+        String key = cpc.pname + "_" + cdf.vplb;
+        ArgumentType atype = perCommand ? null : argumentTypes.get(key);
+        if (atype == null) {
+            atype = createArgumentType(mc, cdf);
+            if (!perCommand) {
+                argumentTypes.put(key, atype);
+            }
+        }
+        arg.setArgumentType(atype);
+        return arg;
+    }
+
+    private ArgumentType createArgumentType(MetaCommand mc, CdfRecord cdf) {
+        CpcRecord cpc = cdf.cpc;
         ArgumentType.Builder<?> argType;
 
         if (cpc.ptc == 11) {
@@ -755,8 +751,7 @@ public abstract class TcMibLoader extends TmMibLoader {
         if (cpc.unit != null && cpc.ptc != 12) {// we exclude 12 because aggregate arguments cannot have units
             ((BaseDataType.Builder<?>) argType).addUnit(new UnitType(cpc.unit));
         }
-        arg.setArgumentType(argType.build());
-        return arg;
+        return argType.build();
     }
 
     private ArgumentType.Builder<?> createArgumentTypeCcateg(CdfRecord cdf) {
@@ -767,7 +762,8 @@ public abstract class TcMibLoader extends TmMibLoader {
                     + "' not found in the CCA table");
         }
         DataEncoding.Builder<?> encoding = getDataEncoding(ctx, cpc.ptc, cpc.pfc, cdf.vplb);
-        encoding.setDefaultCalibrator(new SplineCalibrator(cca.splines));
+        encoding.setDefaultCalibrator(
+                ccaCalibrators.computeIfAbsent(cpc.ccaref, k -> new SplineCalibrator(cca.splines)));
 
         if ("R".equals(cca.engfmt)) {
             FloatArgumentType.Builder argType = new FloatArgumentType.Builder().setName(cpc.pname);
@@ -919,22 +915,21 @@ public abstract class TcMibLoader extends TmMibLoader {
 
     private void loadCpc() throws DatabaseLoadException {
         switchTo("cpc");
-        String[] line;
-        while ((line = nextLine()) != null) {
-            checkMandatory(line, IDX_CPC_PNAME, IDX_CPC_PTC, IDX_CPC_PFC);
+        while (nextRow()) {
+            checkMandatory(IDX_CPC_PNAME, IDX_CPC_PTC, IDX_CPC_PFC);
             CpcRecord cpc = new CpcRecord();
-            cpc.pname = line[IDX_CPC_PNAME];
-            cpc.descr = getString(line, IDX_CPC_DESCR, null);
-            cpc.pfc = getInt(line, IDX_CPC_PFC);
-            cpc.ptc = getInt(line, IDX_CPC_PTC);
-            cpc.unit = getString(line, IDX_CPC_UNIT, null);
-            cpc.categ = getString(line, IDX_CPC_CATEG, "N");
-            cpc.prfref = getString(line, IDX_CPC_PRFREF, null);
-            cpc.ccaref = getString(line, IDX_CPC_CCAREF, null);
-            cpc.pafref = getString(line, IDX_CPC_PAFREF, null);
-            cpc.inter = getString(line, IDX_CPC_INTER, "R");
-            cpc.defval = getString(line, IDX_CPC_DEFVAL, null);
-            cpc.corr = getString(line, IDX_CPC_DEFVAL, "Y");
+            cpc.pname = getString(IDX_CPC_PNAME);
+            cpc.descr = getString(IDX_CPC_DESCR, null);
+            cpc.pfc = getInt(IDX_CPC_PFC);
+            cpc.ptc = getInt(IDX_CPC_PTC);
+            cpc.unit = getString(IDX_CPC_UNIT, null);
+            cpc.categ = getString(IDX_CPC_CATEG, "N");
+            cpc.prfref = getString(IDX_CPC_PRFREF, null);
+            cpc.ccaref = getString(IDX_CPC_CCAREF, null);
+            cpc.pafref = getString(IDX_CPC_PAFREF, null);
+            cpc.inter = getString(IDX_CPC_INTER, "R");
+            cpc.defval = getString(IDX_CPC_DEFVAL, null);
+            cpc.corr = getString(IDX_CPC_DEFVAL, "Y");
             cpcRecords.put(cpc.pname, cpc);
         }
     }
@@ -955,35 +950,34 @@ public abstract class TcMibLoader extends TmMibLoader {
 
     private void loadCdf() throws DatabaseLoadException {
         switchTo("cdf");
-        String[] line;
-        while ((line = nextLine()) != null) {
-            checkMandatory(line, IDX_CDF_CNAME, IDX_CDF_ELTYPE, IDX_CDF_ELLEN, IDX_CDF_BIT);
-            String cname = line[IDX_CDF_CNAME];
+        while (nextRow()) {
+            checkMandatory(IDX_CDF_CNAME, IDX_CDF_ELTYPE, IDX_CDF_ELLEN, IDX_CDF_BIT);
+            String cname = getString(IDX_CDF_CNAME);
             if (cname.startsWith("BINCMD")) {
                 log.info("Ignoring BINCMD command '{}'", cname);
                 continue;
             }
             CdfRecord cdf = new CdfRecord();
-            cdf.eltype = line[IDX_CDF_ELTYPE];
-            cdf.descr = getString(line, IDX_CDF_DESCR, null);
-            cdf.ellen = getInt(line, IDX_CDF_ELLEN);
-            cdf.position = getInt(line, IDX_CDF_BIT);
-            cdf.grpsize = getInt(line, IDX_CDF_GRPSIZE, 0);
+            cdf.eltype = getString(IDX_CDF_ELTYPE);
+            cdf.descr = getString(IDX_CDF_DESCR, null);
+            cdf.ellen = getInt(IDX_CDF_ELLEN);
+            cdf.position = getInt(IDX_CDF_BIT);
+            cdf.grpsize = getInt(IDX_CDF_GRPSIZE, 0);
 
-            cdf.vplb = getInt(line, IDX_CDF_VPLB, vblParamLengthBytes);
+            cdf.vplb = getInt(IDX_CDF_VPLB, vblParamLengthBytes);
 
             if (!"A".equalsIgnoreCase(cdf.eltype)) {
-                checkMandatory(line, IDX_CDF_PNAME);
-                String pname = line[IDX_CDF_PNAME];
+                checkMandatory(IDX_CDF_PNAME);
+                String pname = getString(IDX_CDF_PNAME);
                 CpcRecord cpc = cpcRecords.get(pname);
                 if (cpc == null) {
                     throw new MibLoadException(ctx, "Parameter CDF_PNAME=" + pname + " not found in CPC table");
                 }
                 cdf.cpc = cpc;
             }
-            cdf.inter = getString(line, IDX_CDF_INTER, "R");
-            cdf.value = getString(line, IDX_CDF_VALUE, null);
-            cdf.tmid = getString(line, IDX_CDF_TMID, null);
+            cdf.inter = getString(IDX_CDF_INTER, "R");
+            cdf.value = getString(IDX_CDF_VALUE, null);
+            cdf.tmid = getString(IDX_CDF_TMID, null);
 
             List<CdfRecord> l = cdfRecords.computeIfAbsent(cname, k -> new ArrayList<>());
             l.add(cdf);
@@ -1181,8 +1175,8 @@ public abstract class TcMibLoader extends TmMibLoader {
     final static int IDX_CVE_TOL = 4;
     final static int IDX_CVE_CHECK = 5;
 
-    private Map<String, List<MatchCriteria>> loadCve() {
-        Map<String, List<MatchCriteria>> cveRecords = new HashMap<>();
+    private Map<String, List<CveVerifier.Check>> loadCve() {
+        Map<String, List<CveVerifier.Check>> cveRecords = new HashMap<>();
         switchTo("cve");
         String[] line;
         while ((line = nextLine()) != null) {
@@ -1202,15 +1196,22 @@ public abstract class TcMibLoader extends TmMibLoader {
             checkMandatory(line, IDX_CVE_VAL);
             String inter = getString(line, IDX_CVE_INTER, "R");
             if ("C".equals(inter)) {
-                log.debug(
-                        "Verification on command parameter not supported, skipping cve verification expression on line"
-                                + ctx.lineNum);
+                double tolerance = getDouble(line, IDX_CVE_TOL, 0);
+                CveVerifier.Check cveCheck = compileArgumentCve(param, line[IDX_CVE_VAL], tolerance);
+                if (cveCheck == null) {
+                    log.warn("Verification of a parameter without numeric raw value on command parameter not "
+                            + "supported, skipping cve verification expression CVE_CVSID={} CVE_PARNAM={} on line {}",
+                            cvsid, parname, ctx.lineNum);
+                    continue;
+                }
+                cveRecords.computeIfAbsent(cvsid, k -> new ArrayList<>()).add(cveCheck);
                 continue;
             }
             boolean useCalibrated = getUseCalibrated("CVE_INTER", inter);
 
             String tol = getString(line, IDX_CVE_TOL, null);
             MatchCriteria matchCrit = null;
+            double tolerance = 0;
             if (tol != null) {
                 ParameterType ptype = param.getParameterType();
                 if (useCalibrated) {
@@ -1219,7 +1220,7 @@ public abstract class TcMibLoader extends TmMibLoader {
                                 "Cannot use CVE_TOL for a parameter with non numeric eng value" + parname);
                     }
                 }
-                double tolerance = getDouble(line, IDX_CVE_TOL);
+                tolerance = getDouble(line, IDX_CVE_TOL);
                 if (tolerance != 0) {
                     double val = getDouble(line, IDX_CVE_VAL);
                     ComparisonList cl = new ComparisonList();
@@ -1234,12 +1235,75 @@ public abstract class TcMibLoader extends TmMibLoader {
                 matchCrit = new Comparison(new ParameterInstanceRef(param, useCalibrated), line[IDX_CVE_VAL],
                         OperatorType.EQUALITY);
             }
-            List<MatchCriteria> l = cveRecords.computeIfAbsent(cvsid, k -> new ArrayList<>());
-            l.add(matchCrit);
+            CveVerifier.Check cveCheck = compileCve(param, useCalibrated, line[IDX_CVE_VAL], tolerance);
+            if (cveCheck == null) {
+                cveCheck = CveVerifier.Check.criteria(param, !useCalibrated, matchCrit);
+            }
+            cveRecords.computeIfAbsent(cvsid, k -> new ArrayList<>()).add(cveCheck);
         }
         return cveRecords;
     }
 
+    /**
+     * Compiles a verification expression into a check of the {@link CveVerifier}, with the tolerance folded into the
+     * bounds of a numeric range.
+     * <p>
+     * Returns null if the value of the parameter cannot be checked by the CveVerifier (for example binary or time
+     * values), the expression is then evaluated as match criteria by the verifier.
+     */
+    private CveVerifier.Check compileCve(Parameter param, boolean useCalibrated, String val, double tolerance) {
+        ParameterType ptype = param.getParameterType();
+        boolean numeric, string, float32;
+        if (useCalibrated) {
+            numeric = ptype instanceof NumericParameterType;
+            string = ptype instanceof EnumeratedParameterType || ptype instanceof StringParameterType;
+            float32 = ptype instanceof FloatParameterType fpt && fpt.getSizeInBits() == 32;
+        } else {
+            DataEncoding encoding = ptype instanceof BaseDataType bdt ? bdt.getEncoding() : null;
+            numeric = encoding instanceof IntegerDataEncoding || encoding instanceof FloatDataEncoding;
+            string = encoding instanceof StringDataEncoding;
+            float32 = encoding instanceof FloatDataEncoding fde && fde.getSizeInBits() == 32;
+        }
+        if (numeric) {
+            double x;
+            try {
+                x = Double.parseDouble(val);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            double lo = x - tolerance;
+            double hi = x + tolerance;
+            if (float32) {
+                // the 32 bits float values are compared with the bounds converted to float
+                lo = (float) lo;
+                hi = (float) hi;
+            }
+            return CveVerifier.Check.range(param, !useCalibrated, lo, hi);
+        } else if (string && tolerance == 0) {
+            return CveVerifier.Check.equal(param, !useCalibrated, val);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Compiles a verification expression comparing the raw value of the parameter with the value of the command
+     * argument CVE_VAL (CVE_INTER=C) into a range relative to the argument value, bound when the verifier starts.
+     * <p>
+     * Returns null if the raw value of the parameter is not numeric.
+     */
+    private CveVerifier.Check compileArgumentCve(Parameter param, String argName, double tolerance) {
+        ParameterType ptype = param.getParameterType();
+        DataEncoding encoding = ptype instanceof BaseDataType bdt ? bdt.getEncoding() : null;
+        if (encoding instanceof IntegerDataEncoding) {
+            return CveVerifier.Check.argument(param, argName, tolerance, false);
+        } else if (encoding instanceof FloatDataEncoding fde) {
+            return CveVerifier.Check.argument(param, argName, tolerance, fde.getSizeInBits() == 32);
+        } else {
+            return null;
+        }
+    }
+
     // Verification stages file: cvs
     final static int IDX_CVS_ID = 0;
     final static int IDX_CVS_TYPE = 1;
@@ -1250,7 +1314,7 @@ public abstract class TcMibLoader extends TmMibLoader {
     final static int IDX_CVS_UNCERTAINTY = 6;
 
     private Map<String, CommandVerifierInfo> loadCvs() {
-        Map<String, List<MatchCriteria>> paramConditions = loadCve();
+        Map<String, List<CveVerifier.Check>> paramConditions = loadCve();
         Map<String, CommandVerifierInfo> verifiers = new HashMap<>();
         switchTo("cvs");
         String[] line;
@@ -1278,26 +1342,14 @@ public abstract class TcMibLoader extends TmMibLoader {
             if ("R".equals(source)) {
                 cvInfo = new Pus1VerifierRecord(stage, checkWindow);
             } else if ("V".equals(source)) {
-                List<MatchCriteria> l = paramConditions.get(id);
+                List<CveVerifier.Check> l = paramConditions.get(id);
                 if (l == null) {
                     throw new MibLoadException(ctx, "No CVE record found for CVS_ID=" + id);
                 }
-                var cv = new CommandVerifier(Type.MATCH_CRITERIA, type, checkWindow);
-                if (l.size() == 1) {
-                    cv.setMatchCriteria(l.get(0));
-                } else {
-                    var compList = new ComparisonList();
-                    for (var mc : l) {
-                        if (mc instanceof Comparison c) {
-                            compList.addComparison(c);
-                        } else if (mc instanceof ComparisonList cl) {
-                            for (var c : cl.getComparisonList()) {
-                                compList.addComparison(c);
-                            }
-                        }
-                    }
-                    cv.setMatchCriteria(compList);
-                }
+                var alg = new CveVerifier.Definition("CVE_Verifier-" + id, l);
+                spaceSystem.addAlgorithm(alg);
+                CommandVerifier cv = new CommandVerifier(Type.ALGORITHM, type, checkWindow);
+                cv.setAlgorithm(alg);
 
                 cvInfo = new CommandVerifierRecord(cv);
 
@@ -1379,6 +1431,14 @@ public abstract class TcMibLoader extends TmMibLoader {
                 // "Verifier profile makes reference to unknown CVP_CVSID=" + line[IDX_CVP_CVSID]);
             }
             if (cv instanceof CommandVerifierRecord cvr) {
+                if (cvr.cmdVerifier.getAlgorithm() instanceof CveVerifier.Definition def) {
+                    for (String argName : def.getArgumentNames()) {
+                        if (mc.getEffectiveArgument(argName) == null) {
+                            log.warn("Command {} has no argument {} used by the verification expressions of CVS_ID={}",
+                                    mc.getName(), argName, line[IDX_CVP_CVSID]);
+                        }
+                    }
+                }
                 mc.addVerifier(cvr.cmdVerifier);
             } else if (cv instanceof Pus1VerifierRecord pvr) {
                 mc.addVerifier(createPusVerifier(mc, pvr.stage, pvr.checkWindow));
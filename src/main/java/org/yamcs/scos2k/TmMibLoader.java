@@ -9,15 +9,15 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-import org.codehaus.commons.compiler.CompileException;
-import org.codehaus.janino.SimpleCompiler;
 import org.yamcs.ConfigurationException;
 import org.yamcs.YConfiguration;
 import org.yamcs.scos2k.MonitoringData.CafRecord;
@@ -30,7 +30,9 @@ import org.yamcs.scos2k.MonitoringData.PidRecord;
 import org.yamcs.scos2k.MonitoringData.TpcfRecord;
 import org.yamcs.scos2k.MonitoringData.VpdRecord;
 import org.yamcs.scos2k.MonitoringData.PcfRecord;
-import org.yamcs.scos2k.ol.OLAlgorithmEngine;
+import org.yamcs.scos2k.ol.OLAlgorithm;
+import org.yamcs.scos2k.ol.OLCompilationUnit;
+import org.yamcs.scos2k.ol.OLCompiler;
 import org.yamcs.scos2k.ol.OLParser;
 import org.yamcs.scos2k.ol.ParseException;
 import org.yamcs.scos2k.ol.TokenMgrError;
@@ -39,6 +41,7 @@ import org.yamcs.xtce.util.DoubleRange;
 import org.yamcs.xtce.AbsoluteTimeParameterType;
 import org.yamcs.xtce.AggregateParameterType;
 import org.yamcs.xtce.AlarmLevels;
+import org.yamcs.xtce.AlgorithmCalibrator;
 import org.yamcs.xtce.BaseDataType;
 import org.yamcs.xtce.BinaryParameterType;
 import org.yamcs.xtce.BooleanParameterType;
@@ -58,7 +61,6 @@ import org.yamcs.xtce.FloatParameterType;
 import org.yamcs.xtce.IndirectParameterRefEntry;
 import org.yamcs.xtce.InputParameter;
 import org.yamcs.xtce.IntegerParameterType;
-import org.yamcs.xtce.JavaExpressionCalibrator;
 import org.yamcs.xtce.MatchCriteria;
 import org.yamcs.xtce.NumericAlarm;
 import org.yamcs.xtce.NumericParameterType;
@@ -68,13 +70,13 @@ import org.yamcs.xtce.OutputParameter;
 import org.yamcs.xtce.Parameter;
 import org.yamcs.xtce.ParameterEntry;
 import org.yamcs.xtce.ParameterInstanceRef;
+import org.yamcs.xtce.ParameterInstanceRef.InstanceRelativeTo;
 import org.yamcs.xtce.ParameterType;
 import org.yamcs.xtce.PolynomialCalibrator;
 import org.yamcs.xtce.ReferenceTime;
 import org.yamcs.xtce.Repeat;
 import org.yamcs.xtce.SequenceContainer;
 import org.yamcs.xtce.SequenceEntry;
-import org.yamcs.xtce.SplineCalibrator;
 import org.yamcs.xtce.SplinePoint;
 import org.yamcs.xtce.StringParameterType;
 import org.yamcs.xtce.TriggerSetType;
@@ -90,17 +92,29 @@ public abstract class TmMibLoader extends BaseMibLoader {
     Map<String, PolynomialCalibrator> polynoms = new HashMap<>();
     Map<String, Calibrator> logCalibrators = new HashMap<>();
     Map<String, Integer> paddings = new HashMap<>();
-    Map<String, SplineCalibrator> splineCalibrators = new HashMap<>();
+    Map<String, AlgorithmCalibrator> splineCalibrators = new HashMap<>();
     Map<String, CafRecord> cafRecords = new HashMap<>();
     Map<String, List<CurRecord>> curRecords = new HashMap<>();
+    // parameter types with context calibrators or alarms, shared by the parameters having the same definition
+    Map<String, ParameterType> internedTypes = new HashMap<>();
+    // next suffix to try when looking for a free type name
+    Map<String, Integer> typeNameSuffixes = new HashMap<>();
+    // "rlchk=valpar" -> context match shared by the context calibrators and alarms
+    Map<String, MatchCriteria> contextMatches = new HashMap<>();
+    // "rlchk=valpar:select" -> context calibrator shared by the parameters having the same CUR record
+    Map<String, ContextCalibrator> contextCalibrators = new HashMap<>();
     Map<Long, PidRecord> pidRecords = new HashMap<>();
     Map<Long, List<PidRecord>> pidVpdRecords = new HashMap<>();
+    // (apid, type, subtype) -> container created for the packets with that identification
+    Map<Integer, SequenceContainer> level1Containers = new HashMap<>();
     Set<Long> packetsContainingWritableParameters = new HashSet<>();
     // default size in bytes of the size tag for variable length strings and bytestrings
     private int vblParamLengthBytes = 1;
     // where to extract the type and subType from the packet - in bytes
     int typeOffset = 7;
     int subTypeOffset = 8;
+    // maximum size in bits of the raw values for which the LGF calibrations are tabulated; 0 = not tabulated
+    int lgfTableBits;
     // if not null, the APIDs within will be excluded from the inheritance of the ccsds to ccsds-pus containers
     IntHashSet nonPusApids;
 
@@ -118,6 +132,10 @@ public abstract class TmMibLoader extends BaseMibLoader {
         }
         typeOffset = tmConf.getInt("typeOffset", 7);
         subTypeOffset = tmConf.getInt("subTypeOffset", 8);
+        lgfTableBits = tmConf.getInt("lgfTableBits", 0);
+        if (lgfTableBits < 0 || lgfTableBits > 16) {
+            throw new ConfigurationException("lgfTableBits has to be between 0 and 16");
+        }
         pus1DataOffset = tmConf.getInt("pus1DataOffset");
         if (tmConf.containsKey("packetsContainingWritableParameters")) {
             List<Number> l = tmConf.getList("packetsContainingWritableParameters");
@@ -148,15 +166,14 @@ public abstract class TmMibLoader extends BaseMibLoader {
      */
     private void loadCur() throws DatabaseLoadException {
         switchTo("cur");
-        String[] line;
-        while ((line = nextLine()) != null) {
-            checkMandatory(line, IDX_CUR_PNAME, IDX_CUR_POS, IDX_CUR_RLCHK, IDX_CUR_VALPAR, IDX_CUR_SELECT);
+        while (nextRow()) {
+            checkMandatory(IDX_CUR_PNAME, IDX_CUR_POS, IDX_CUR_RLCHK, IDX_CUR_VALPAR, IDX_CUR_SELECT);
             CurRecord r = new CurRecord();
-            r.pos = getInt(line, IDX_CUR_POS);
-            r.rlchk = line[IDX_CUR_RLCHK];
-            r.valpar = getLong(line, IDX_CUR_VALPAR);
-            r.select = line[IDX_CUR_SELECT];
-            List<CurRecord> l = curRecords.computeIfAbsent(line[IDX_CUR_PNAME], k -> new ArrayList<>());
+            r.pos = getInt(IDX_CUR_POS);
+            r.rlchk = getString(IDX_CUR_RLCHK);
+            r.valpar = getLong(IDX_CUR_VALPAR);
+            r.select = getString(IDX_CUR_SELECT);
+            List<CurRecord> l = curRecords.computeIfAbsent(getString(IDX_CUR_PNAME), k -> new ArrayList<>());
             l.add(r);
         }
     }
@@ -178,7 +195,8 @@ public abstract class TmMibLoader extends BaseMibLoader {
      * CAF: Numerical calibrations
      * <p>
      * CAP: Numerical calibrations definition
-     * 
+     * <p>
+     * The curves are evaluated by the {@link CafCalibrator}.
      */
     private void loadCafCap() throws DatabaseLoadException {
         switchTo("caf");
@@ -210,7 +228,7 @@ public abstract class TmMibLoader extends BaseMibLoader {
             l.add(sp);
         }
         splines.forEach((name, l) -> {
-            splineCalibrators.put(name, new SplineCalibrator(l));
+            splineCalibrators.put(name, new AlgorithmCalibrator(new CafCalibrator.Definition("caf_" + name, l)));
         });
     }
 
@@ -308,23 +326,19 @@ public abstract class TmMibLoader extends BaseMibLoader {
 
     /**
      * 
-     * LGF: Logarithmic calibrations definitions:
+     * LGF: Logarithmic calibrations definitions, evaluated by the {@link LgfCalibrator}
      */
     private void loadLgf() throws DatabaseLoadException {
         switchTo("lgf");
         String[] line;
         while ((line = nextLine()) != null) {
             checkMandatory(line, IDX_LGF_IDENT, IDX_LGF_POL1);
-            StringBuilder sb = new StringBuilder();
-            sb.append("org.yamcs.scos2k.LogCalibration.calibrate(v, new double[]{");
-            sb.append(getDouble(line, IDX_LGF_POL1));
-            sb.append(", ").append(getDouble(line, IDX_LGF_POL2, 0));
-            sb.append(", ").append(getDouble(line, IDX_LGF_POL3, 0));
-            sb.append(", ").append(getDouble(line, IDX_LGF_POL4, 0));
-            sb.append(", ").append(getDouble(line, IDX_LGF_POL5, 0));
-            sb.append("})");
-            JavaExpressionCalibrator calib = new JavaExpressionCalibrator(sb.toString());
-            logCalibrators.put(line[IDX_LGF_IDENT], calib);
+            String name = line[IDX_LGF_IDENT];
+            var def = new LgfCalibrator.Definition("lgf_" + name, getDouble(line, IDX_LGF_POL1),
+                    getDouble(line, IDX_LGF_POL2, 0), getDouble(line, IDX_LGF_POL3, 0),
+                    getDouble(line, IDX_LGF_POL4, 0), getDouble(line, IDX_LGF_POL5, 0), lgfTableBits);
+            AlgorithmCalibrator calib = new AlgorithmCalibrator(def);
+            logCalibrators.put(name, calib);
         }
     }
 
@@ -354,31 +368,30 @@ public abstract class TmMibLoader extends BaseMibLoader {
 
     void loadPcf() {
         switchTo("pcf");
-        String[] line;
-        while ((line = nextLine()) != null) {
-            checkMandatory(line, IDX_PCF_PNAME, IDX_PCF_PTC, IDX_PCF_PFC, IDX_PCF_CATEG, IDX_PCF_NATUR);
+        while (nextRow()) {
+            checkMandatory(IDX_PCF_PNAME, IDX_PCF_PTC, IDX_PCF_PFC, IDX_PCF_CATEG, IDX_PCF_NATUR);
 
-            String pname = line[IDX_PCF_PNAME];
+            String pname = getString(IDX_PCF_PNAME);
             if (!MIB_PNAME.matcher(pname).matches()) {
                 throw new MibLoadException(ctx, "Invalid parameter name '" + pname + "'");
             }
 
             // TODO setunit
-            int ptc = getInt(line, IDX_PCF_PTC);
-            int pfc = getInt(line, IDX_PCF_PFC);
-            PcfRecord pcf = new PcfRecord(pname, line[IDX_PCF_DESCR], ptc, pfc);
-            pcf.width = getInt(line, IDX_PCF_WIDTH, -1);
+            int ptc = getInt(IDX_PCF_PTC);
+            int pfc = getInt(IDX_PCF_PFC);
+            PcfRecord pcf = new PcfRecord(pname, getString(IDX_PCF_DESCR), ptc, pfc);
+            pcf.width = getInt(IDX_PCF_WIDTH, -1);
             // TODO PCF valid
-            pcf.categ = line[IDX_PCF_CATEG];
-            pcf.curtx = getString(line, IDX_PCF_CURTX, null);
-            pcf.natur = getString(line, IDX_PCF_NATUR, null);
-            pcf.inter = getString(line, IDX_PCF_INTER, null);
-            pcf.vplb = getInt(line, IDX_PCF_VPLB, vblParamLengthBytes);
-            pcf.pid = getLong(line, IDX_PCF_PID, -1);
-            pcf.unit = getString(line, IDX_PCF_UNIT, null);
-            pcf.uscon = "Y".equals(getString(line, IDX_PCF_USCON, null));
-            pcf.parval = getString(line, IDX_PCF_PARVAL, null);
-            pcf.related = getString(line, IDX_PCF_RELATED, null);
+            pcf.categ = getString(IDX_PCF_CATEG);
+            pcf.curtx = getString(IDX_PCF_CURTX, null);
+            pcf.natur = getString(IDX_PCF_NATUR, null);
+            pcf.inter = getString(IDX_PCF_INTER, null);
+            pcf.vplb = getInt(IDX_PCF_VPLB, vblParamLengthBytes);
+            pcf.pid = getLong(IDX_PCF_PID, -1);
+            pcf.unit = getString(IDX_PCF_UNIT, null);
+            pcf.uscon = columnEquals(IDX_PCF_USCON, "Y");
+            pcf.parval = getString(IDX_PCF_PARVAL, null);
+            pcf.related = getString(IDX_PCF_RELATED, null);
             MibParameter mp = new MibParameter(pcf);
 
             if (ptc == 13) {
@@ -386,10 +399,10 @@ public abstract class TmMibLoader extends BaseMibLoader {
                 continue;
             }
             if (ptc == 11) {
-                if (!hasColumn(line, IDX_PCF_RELATED)) {
+                if (!hasColumn(IDX_PCF_RELATED)) {
                     throw new MibLoadException(ctx, "PCF_RELATED is not set for deduced parameter '" + pname + "'");
                 }
-                DeducedParameter p = new DeducedParameter(pname, line[IDX_PCF_RELATED]);
+                DeducedParameter p = new DeducedParameter(pname, getString(IDX_PCF_RELATED));
                 deducedParameters.put(pname, p);
             } else {
                 boolean hasContextCalib = curRecords.containsKey(pcf.name);
@@ -403,24 +416,21 @@ public abstract class TmMibLoader extends BaseMibLoader {
                         spaceSystem.addParameterType(ptype);
                     }
                 } else {
-                    // do not deduplicate parameter types with contextual calibrators
-                    var ptypeb = createParameterType(mp);
-
-                    if (ptypeb == null) {
-                        log.warn("No parameter type available for {}, ignoring parameter", pcf.name);
-                        continue;
-                    }
-                    String name = mp.getTypeName();
-                    int idx = 0;
-                    while (true) {
-                        if (spaceSystem.getParameterType(name + "_" + idx) == null) {
-                            break;
+                    // the contextual calibrators are added later to the encoding; the type can be shared only by the
+                    // parameters having the same CUR records
+                    String key = mp.getTypeName() + getCurKey(curRecords.get(pcf.name));
+                    ptype = internedTypes.get(key);
+                    if (ptype == null) {
+                        var ptypeb = createParameterType(mp);
+                        if (ptypeb == null) {
+                            log.warn("No parameter type available for {}, ignoring parameter", pcf.name);
+                            continue;
                         }
-                        idx++;
+                        ptypeb.setName(findParameterTypeName(mp.getTypeName()));
+                        ptype = ptypeb.build();
+                        spaceSystem.addParameterType(ptype);
+                        internedTypes.put(key, ptype);
                     }
-                    ptypeb.setName(name + "_" + idx);
-                    ptype = ptypeb.build();
-                    spaceSystem.addParameterType(ptype);
                 }
                 mp.ptype = ptype;
             }
@@ -428,31 +438,66 @@ public abstract class TmMibLoader extends BaseMibLoader {
         }
     }
 
+    /**
+     * Loads the synthetic parameters (PCF_PTC=13).
+     * <p>
+     * The OL formulas are first all parsed and translated to java code; the code is then compiled in batch by the
+     * {@link OLCompiler}. Only the algorithms whose code compiled successfully are added to the space system.
+     */
     private void loadSynthetic() throws DatabaseLoadException {
+        OLCompiler compiler = new OLCompiler();
+        List<OLAlgorithm> algorithms = new ArrayList<>();
         for (MibParameter mp : parameters.values()) {
             if (mp.isSynthetic()) {
                 File f = new File(path + "/synthetic/" + mp.name());
                 if (!f.exists()) {
                     throw new DatabaseLoadException("Cannot find synthetic file " + f);
                 }
-                loadSynthetic(mp, f);
+                OLAlgorithm algo = loadSynthetic(mp, f, compiler);
+                if (algo != null) {
+                    algorithms.add(algo);
+                }
+            }
+        }
+        if (algorithms.isEmpty()) {
+            return;
+        }
+        long t0 = System.currentTimeMillis();
+        Map<String, OLCompilationUnit> units = compiler.compile();
+        log.debug("Compiled {} OL formulas in {} ms", algorithms.size(), System.currentTimeMillis() - t0);
+
+        for (OLAlgorithm algo : algorithms) {
+            String name = algo.getName();
+            OLCompilationUnit unit = units.get(name);
+            if (unit == null) {
+                error(new MibLoadException(ctx, "Failed to compile the java code generated for the synthetic parameter "
+                        + name, compiler.getFailures().get(name)));
+                continue;
             }
+            algo.setCompiledCode(unit, OLCompiler.getClassName(name));
+            spaceSystem.addAlgorithm(algo);
         }
     }
 
-    private void loadSynthetic(MibParameter mp, File f) {
-        String code = null;
+    /**
+     * Parses the OL formula, adds the generated code to the compiler and returns the algorithm corresponding to the
+     * synthetic parameter.
+     * <p>
+     * Returns null if the formula cannot be parsed
+     */
+    private OLAlgorithm loadSynthetic(MibParameter mp, File f, OLCompiler compiler) {
         try {
             Parameter outpara = spaceSystem.getParameter(mp.name());
             if (outpara == null) {
                 throw new MibLoadException(ctx, "Cannot find synthetic parameter '" + mp.name() + " in the XTCE db");
             }
 
-            log.debug("Parsing and compiling {}", f);
+            log.debug("Parsing {}", f);
             String olCode = new String(Files.readAllBytes(f.toPath()), StandardCharsets.ISO_8859_1);
             outpara.setLongDescription("```\n" + olCode + "\n```");
             OLParser parser = new OLParser(new StringReader(olCode));
-            code = parser.generateCodeStandalone(mp.name(), name -> {
+            StringBuilder code = new StringBuilder();
+            parser.generateCode(mp.name(), code, name -> {
                 MibParameter mibp = parameters.get(name);
                 if (mibp == null) {
                     throw new MibLoadException(
@@ -460,11 +505,10 @@ public abstract class TmMibLoader extends BaseMibLoader {
                 }
                 return parameters.get(name).ptype;
             });
-            log.debug("For{} got code:\n {}", mp.name(), code);
-            SimpleCompiler compiler = new SimpleCompiler();
-            compiler.cook(code);
-            CustomAlgorithm algo = new CustomAlgorithm(mp.name());
-            algo.setLanguage(OLAlgorithmEngine.LANGUAGE_NAME);
+            log.trace("For {} got code:\n {}", mp.name(), code);
+            compiler.addClass(mp.name(), code.toString());
+
+            OLAlgorithm algo = new OLAlgorithm(mp.name());
             algo.setAlgorithmText(olCode);
             TriggerSetType tst = new TriggerSetType();
             List<InputParameter> inputList = new ArrayList<>();
@@ -482,16 +526,15 @@ public abstract class TmMibLoader extends BaseMibLoader {
             algo.setInputSet(inputList);
             algo.setTriggerSet(tst);
             algo.setOutputList(Arrays.asList(new OutputParameter(outpara)));
-            spaceSystem.addAlgorithm(algo);
+            return algo;
         } catch (ParseException | TokenMgrError e) {
             error(new MibLoadException(ctx, "Failed to parse the OL file " + f, e));
         } catch (IOException e) {
             throw new DatabaseLoadException(e);
-        } catch (CompileException e) {
-            error(new MibLoadException(ctx, "Failed to compile the generated java code " + code, e));
         } catch (MibLoadException e) {
             error(e);
         }
+        return null;
     }
 
     protected void loadTelemetryParams() throws DatabaseLoadException {
@@ -520,7 +563,16 @@ public abstract class TmMibLoader extends BaseMibLoader {
         loadContextCalibrators();
     }
 
+    private static String getCurKey(List<CurRecord> crl) {
+        StringBuilder sb = new StringBuilder("|cur");
+        for (CurRecord r : crl) {
+            sb.append(':').append(r.rlchk).append(',').append(r.valpar).append(',').append(r.select);
+        }
+        return sb.toString();
+    }
+
     private void loadContextCalibrators() {
+        Set<DataEncoding> done = Collections.newSetFromMap(new IdentityHashMap<>());
         for (Map.Entry<String, List<CurRecord>> me : curRecords.entrySet()) {
             String name = me.getKey();
             List<CurRecord> crl = me.getValue();
@@ -529,23 +581,79 @@ public abstract class TmMibLoader extends BaseMibLoader {
             if (mp == null) {
                 throw new MibLoadException(null, "Invalid parameter found in the cur file: CUR_PNAME=" + name);
             }
+            if (!done.add(mp.getEncoding())) {
+                // type shared with a parameter having the same CUR records
+                continue;
+            }
+            if (crl.stream().allMatch(r -> r.rlchk.equals(crl.get(0).rlchk))) {
+                mp.getEncoding().setDefaultCalibrator(getCurCalibrator(mp, crl));
+                continue;
+            }
             List<ContextCalibrator> contextCalibratorList = new ArrayList<>();
             for (CurRecord r : crl) {
-                Parameter refp = spaceSystem.getParameter(r.rlchk);
-                if (refp == null) {
-                    throw new MibLoadException(null, "Invalid parameter specied in the cur file: CUR_RLCHK=" + name);
+                String key = r.rlchk + "=" + r.valpar + ":" + r.select;
+                ContextCalibrator cc = contextCalibrators.get(key);
+                if (cc == null) {
+                    MatchCriteria ctx = getContextMatch(r.rlchk, r.valpar);
+                    if (ctx == null) {
+                        throw new MibLoadException(null,
+                                "Invalid parameter specied in the cur file: CUR_RLCHK=" + name);
+                    }
+                    cc = new ContextCalibrator(ctx, getNumericCalibrator(r.select));
+                    contextCalibrators.put(key, cc);
                 }
-
-                MatchCriteria ctx = new Comparison(new ParameterInstanceRef(refp, false), Long.toString(r.valpar),
-                        OperatorType.EQUALITY);
-                Calibrator calibrator = getNumericCalibrator(r.select);
-                ContextCalibrator cc = new ContextCalibrator(ctx, calibrator);
                 contextCalibratorList.add(cc);
             }
             mp.getEncoding().setContextCalibratorList(contextCalibratorList);
         }
     }
 
+    /**
+     * Builds the {@link CurCalibrator} selecting the calibration by hash lookup on the value of the CUR_RLCHK parameter
+     * common to all the CUR records.
+     */
+    private Calibrator getCurCalibrator(MibParameter mp, List<CurRecord> crl) {
+        String rlchk = crl.get(0).rlchk;
+        Parameter refp = spaceSystem.getParameter(rlchk);
+        if (refp == null) {
+            throw new MibLoadException(null, "Invalid parameter specified in the cur file: CUR_RLCHK=" + rlchk);
+        }
+        long[] valpars = new long[crl.size()];
+        Calibrator[] calibrators = new Calibrator[crl.size()];
+        for (int i = 0; i < crl.size(); i++) {
+            valpars[i] = crl.get(i).valpar;
+            calibrators[i] = getNumericCalibrator(crl.get(i).select);
+        }
+        // like the context conditions, use the value from the current packet or else the last known value
+        ParameterInstanceRef ref = new ParameterInstanceRef(refp, false);
+        ref.setRelativeTo(InstanceRelativeTo.CURRENT_ENTRY_ACROSS_PACKETS);
+        var def = new CurCalibrator.Definition("cur_" + mp.name(), ref, valpars, calibrators,
+                mp.getEncoding().getDefaultCalibrator());
+        return new AlgorithmCalibrator(def);
+    }
+
+    /**
+     * Returns the condition rlchk == valpar used by the context calibrators and alarms.
+     * <p>
+     * The conditions are shared such that the processor evaluates each of them once per packet.
+     *
+     * @return null if the parameter rlchk does not exist
+     */
+    private MatchCriteria getContextMatch(String rlchk, long valpar) {
+        String key = rlchk + "=" + valpar;
+        MatchCriteria match = contextMatches.get(key);
+        if (match == null) {
+            Parameter refp = spaceSystem.getParameter(rlchk);
+            if (refp == null) {
+                return null;
+            }
+            match = new Comparison(new ParameterInstanceRef(refp, false), Long.toString(valpar),
+                    OperatorType.EQUALITY);
+            contextMatches.put(key, match);
+        }
+        return match;
+    }
+
     private ParameterType.Builder<?> createParameterType(MibParameter mp) {
         String pcfCateg = mp.pcf.categ;
         ParameterType.Builder<?> ptypeb;
@@ -823,6 +931,12 @@ public abstract class TmMibLoader extends BaseMibLoader {
 
     private void addEnumeratedAlarm(MibParameter mp, List<OcpRecord> l, boolean raw) {
         Parameter param = spaceSystem.getParameter(mp.name());
+        String key = param.getParameterType().getName() + getOcpKey(l, raw ? "R" : "A");
+        ParameterType interned = internedTypes.get(key);
+        if (interned != null) {
+            param.setParameterType(interned);
+            return;
+        }
         EnumeratedParameterType.Builder ptypeb = (EnumeratedParameterType.Builder) param.getParameterType().toBuilder();
         ptypeb.setName(findParameterTypeName(ptypeb.getName()));
 
@@ -843,12 +957,10 @@ public abstract class TmMibLoader extends BaseMibLoader {
                     }
                 }
                 if (contextMatch == null) {
-                    Parameter paraRef = spaceSystem.getParameter(r.rlchk);
-                    if (paraRef == null) {
+                    contextMatch = getContextMatch(r.rlchk, r.valpar);
+                    if (contextMatch == null) {
                         throw new MibLoadException(ctx, "Unknown parameter '" + r.rlchk + " referenced in the ocp");
                     }
-                    contextMatch = new Comparison(new ParameterInstanceRef(paraRef, false), Long.toString(r.valpar),
-                            OperatorType.EQUALITY);
                 }
             } else {
                 contextMatch = null;
@@ -882,6 +994,7 @@ public abstract class TmMibLoader extends BaseMibLoader {
         }
         var ptype = ptypeb.build();
         spaceSystem.addParameterType(ptype);
+        internedTypes.put(key, ptype);
         param.setParameterType(ptype);
     }
 
@@ -903,6 +1016,12 @@ public abstract class TmMibLoader extends BaseMibLoader {
 
     private void addNumericAlarm(MibParameter mp, List<OcpRecord> l, int minViolations) {
         Parameter param = spaceSystem.getParameter(mp.name());
+        String key = param.getParameterType().getName() + getOcpKey(l, Integer.toString(minViolations));
+        ParameterType interned = internedTypes.get(key);
+        if (interned != null) {
+            param.setParameterType(interned);
+            return;
+        }
         NumericParameterType.Builder<?> ptypeb = (NumericParameterType.Builder<?>) param.getParameterType().toBuilder();
         ptypeb.setName(findParameterTypeName(ptypeb.getName()));
 
@@ -931,13 +1050,11 @@ public abstract class TmMibLoader extends BaseMibLoader {
                     }
                 }
                 if (contextMatch == null) {
-                    Parameter paraRef = spaceSystem.getParameter(r.rlchk);
-                    if (paraRef == null) {
+                    contextMatch = getContextMatch(r.rlchk, r.valpar);
+                    if (contextMatch == null) {
                         error(new MibLoadException(ctx, "Unknown parameter '" + r.rlchk + " referenced in the ocp"));
                         continue;
                     }
-                    contextMatch = new Comparison(new ParameterInstanceRef(paraRef, false), Long.toString(r.valpar),
-                            OperatorType.EQUALITY);
                 }
             } else {
                 contextMatch = null;
@@ -951,18 +1068,35 @@ public abstract class TmMibLoader extends BaseMibLoader {
         }
         ParameterType ptype = ptypeb.build();
         spaceSystem.addParameterType(ptype);
+        internedTypes.put(key, ptype);
         param.setParameterType(ptype);
     }
 
+    // the alarm definition of a parameter, the flag distinguishes the different ways to build the alarm
+    private static String getOcpKey(List<OcpRecord> l, String flag) {
+        StringBuilder sb = new StringBuilder("|ocp:").append(flag);
+        for (OcpRecord r : l) {
+            sb.append(':').append(r.type).append(',').append(r.lvalu).append(',').append(r.hvalu)
+                    .append(',').append(r.rlchk).append(',').append(r.valpar);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a free name of the form oldName_idx.
+     * <p>
+     * The next index to try is remembered for each oldName such that naming many types derived from the same one
+     * does not probe again all the names already taken.
+     */
     private String findParameterTypeName(String oldName) {
-        int idx = 1;
-        while (true) {
-            String name = oldName + "_" + idx;
-            if (spaceSystem.getParameterType(name) == null) {
-                return name;
-            }
+        int idx = typeNameSuffixes.getOrDefault(oldName, 1);
+        String name = oldName + "_" + idx;
+        while (spaceSystem.getParameterType(name) != null) {
             idx++;
+            name = oldName + "_" + idx;
         }
+        typeNameSuffixes.put(oldName, idx + 1);
+        return name;
     }
 
     // Monitoring checks definition: ocp
@@ -976,18 +1110,17 @@ public abstract class TmMibLoader extends BaseMibLoader {
 
     private Map<String, List<OcpRecord>> loadOcp() throws DatabaseLoadException {
         switchTo("ocp");
-        String[] line;
         Map<String, List<OcpRecord>> records = new HashMap<>();
-        while ((line = nextLine()) != null) {
-            checkMandatory(line, IDX_OCP_NAME, IDX_OCP_POS, IDX_OCP_TYPE);
-            String pname = line[IDX_OCP_NAME];
+        while (nextRow()) {
+            checkMandatory(IDX_OCP_NAME, IDX_OCP_POS, IDX_OCP_TYPE);
+            String pname = getString(IDX_OCP_NAME);
             OcpRecord r = new OcpRecord();
-            r.pos = getInt(line, IDX_OCP_POS);
-            r.type = getString(line, IDX_OCP_TYPE, null);
-            r.lvalu = getString(line, IDX_OCP_LVALU, null);
-            r.hvalu = getString(line, IDX_OCP_HVALU, null);
-            r.rlchk = getString(line, IDX_OCP_RLCHK, null);
-            r.valpar = getLong(line, IDX_OCP_VALPAR, 1);
+            r.pos = getInt(IDX_OCP_POS);
+            r.type = getString(IDX_OCP_TYPE, null);
+            r.lvalu = getString(IDX_OCP_LVALU, null);
+            r.hvalu = getString(IDX_OCP_HVALU, null);
+            r.rlchk = getString(IDX_OCP_RLCHK, null);
+            r.valpar = getLong(IDX_OCP_VALPAR, 1);
             List<OcpRecord> l = records.computeIfAbsent(pname, k -> new ArrayList<>());
             l.add(r);
         }
@@ -1007,9 +1140,12 @@ public abstract class TmMibLoader extends BaseMibLoader {
     final static int IDX_PIC_PI2_WID = 5;
     final static int IDX_PIC_APID = 6;
 
-    private List<PicRecord> loadPic() throws DatabaseLoadException {
+    /**
+     * Loads the PIC table indexed by {@link PicRecord#getApidTypeSubtype()}
+     */
+    private Map<Integer, PicRecord> loadPic() throws DatabaseLoadException {
         switchTo("pic");
-        List<PicRecord> result = new ArrayList<>();
+        Map<Integer, PicRecord> result = new HashMap<>();
         String[] line;
         while ((line = nextLine()) != null) {
             checkMandatory(line, IDX_PIC_TYPE, IDX_PIC_STYPE, IDX_PIC_PI1_OFF, IDX_PIC_PI1_WID, IDX_PIC_PI2_OFF,
@@ -1022,7 +1158,12 @@ public abstract class TmMibLoader extends BaseMibLoader {
             pr.pi2Offset = getInt(line, IDX_PIC_PI2_OFF);
             pr.pi2Width = getInt(line, IDX_PIC_PI2_WID);
             pr.apid = hasColumn(line, IDX_PIC_APID) ? getInt(line, IDX_PIC_APID) : -1;
-            result.add(pr);
+            // for duplicates, the first APID specific record and the last generic record are used
+            if (pr.apid == -1) {
+                result.put(pr.getApidTypeSubtype(), pr);
+            } else {
+                result.putIfAbsent(pr.getApidTypeSubtype(), pr);
+            }
         }
         return result;
     }
@@ -1047,30 +1188,27 @@ public abstract class TmMibLoader extends BaseMibLoader {
 
     void loadPid() throws DatabaseLoadException {
         switchTo("pid");
-        String[] line;
-        while ((line = nextLine()) != null) {
-            checkMandatory(line, IDX_PID_TYPE, IDX_PID_STYPE, IDX_PID_APID, IDX_PID_SPID);
-            if ("N".equals(line[IDX_PID_VALID])) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Skipping PID line because VALID=N: {}", Arrays.toString(line));
-                }
+        while (nextRow()) {
+            checkMandatory(IDX_PID_TYPE, IDX_PID_STYPE, IDX_PID_APID, IDX_PID_SPID);
+            if (columnEquals(IDX_PID_VALID, "N")) {
+                log.debug("Skipping PID line {} because VALID=N", ctx.lineNum);
                 continue;
             }
             PidRecord pid = new PidRecord();
-            pid.type = getInt(line, IDX_PID_TYPE);
-            pid.stype = getInt(line, IDX_PID_STYPE);
-            pid.apid = getInt(line, IDX_PID_APID);
-            if (hasColumn(line, IDX_PID_PI1_VAL)) {
-                pid.pi1 = getUnsignedLong(line, IDX_PID_PI1_VAL);
+            pid.type = getInt(IDX_PID_TYPE);
+            pid.stype = getInt(IDX_PID_STYPE);
+            pid.apid = getInt(IDX_PID_APID);
+            if (hasColumn(IDX_PID_PI1_VAL)) {
+                pid.pi1 = getUnsignedLong(IDX_PID_PI1_VAL);
             }
-            if (hasColumn(line, IDX_PID_PI2_VAL)) {
-                pid.pi2 = getUnsignedLong(line, IDX_PID_PI2_VAL);
+            if (hasColumn(IDX_PID_PI2_VAL)) {
+                pid.pi2 = getUnsignedLong(IDX_PID_PI2_VAL);
             }
-            pid.spid = getLong(line, IDX_PID_SPID);
+            pid.spid = getLong(IDX_PID_SPID);
 
-            long tpsd = getLong(line, IDX_PID_TPSD, -1);
-            pid.dfhsize = getInt(line, IDX_PID_DHHSIZE);
-            pid.descr = getString(line, IDX_PID_DESCR, null);
+            long tpsd = getLong(IDX_PID_TPSD, -1);
+            pid.dfhsize = getInt(IDX_PID_DHHSIZE);
+            pid.descr = getString(IDX_PID_DESCR, null);
             if (tpsd != -1) {
                 List<PidRecord> l = pidVpdRecords.computeIfAbsent(tpsd, k -> new ArrayList<>());
                 l.add(pid);
@@ -1080,19 +1218,22 @@ public abstract class TmMibLoader extends BaseMibLoader {
     }
 
     protected void loadTelemetryPackets() {
-        List<PicRecord> picRecords = loadPic();
+        Map<Integer, PicRecord> picRecords = loadPic();
         loadPid();
         Map<Long, TpcfRecord> tpcfRecods = loadTpcf();
-        int[] apidtsypes = pidRecords.values().stream().mapToInt(r -> r.getApidTypeSubtype()).distinct().toArray();
+        Map<Integer, List<PidRecord>> pidsByApidTypeSubtype = new LinkedHashMap<>();
+        for (PidRecord pid : pidRecords.values()) {
+            pidsByApidTypeSubtype.computeIfAbsent(pid.getApidTypeSubtype(), k -> new ArrayList<>()).add(pid);
+        }
 
         createRootPusContainers(spaceSystem, typeOffset, subTypeOffset, nonPusApids);
 
-        for (int apidtstype : apidtsypes) {
+        for (Map.Entry<Integer, List<PidRecord>> me : pidsByApidTypeSubtype.entrySet()) {
+            int apidtstype = me.getKey();
             int type = (apidtstype >> 8) & 0xFF;
             int stype = apidtstype & 0xFF;
             int apid = apidtstype >> 16;
-            List<PidRecord> l = pidRecords.values().stream().filter(r -> r.getApidTypeSubtype() == apidtstype)
-                    .collect(Collectors.toList());
+            List<PidRecord> l = me.getValue();
             String name = getContainerName(apid, type, stype);
             SequenceContainer seq;
 
@@ -1183,6 +1324,7 @@ public abstract class TmMibLoader extends BaseMibLoader {
             if (conf.generatePusNamespace) {
                 seq.addAlias(PUS_NAMESPACE, String.format("TM(%d,%d)", type, stype));
             }
+            level1Containers.put(apidtstype, seq);
         }
         loadVpd();
     }
@@ -1208,16 +1350,10 @@ public abstract class TmMibLoader extends BaseMibLoader {
         return records;
     }
 
-    private PicRecord findPic(List<PicRecord> picRecords, int type, int stype, int apid) {
-        PicRecord r = null;
-        for (PicRecord pic : picRecords) {
-            if (pic.type == type && pic.stype == stype) {
-                if (pic.apid == apid) {
-                    return pic;
-                } else if (pic.apid == -1) {
-                    r = pic;
-                }
-            }
+    private PicRecord findPic(Map<Integer, PicRecord> picRecords, int type, int stype, int apid) {
+        PicRecord r = picRecords.get((apid << 16) | (type << 8) | stype);
+        if (r == null) {
+            r = picRecords.get((-1 << 16) | (type << 8) | stype);
         }
         return r;
     }
@@ -1234,20 +1370,19 @@ public abstract class TmMibLoader extends BaseMibLoader {
 
     void loadPacketEntries() {
         switchTo("plf"); // PLF: Parameters location in fixed packets
-        String[] line;
-        while ((line = nextLine()) != null) {
-            checkMandatory(line, IDX_PLF_NAME, IDX_PLF_SPID, IDX_PLF_OFFBY, IDX_PLF_OFFBI);
-            long spid = getUnsignedLong(line, IDX_PLF_SPID);
+        while (nextRow()) {
+            checkMandatory(IDX_PLF_NAME, IDX_PLF_SPID, IDX_PLF_OFFBY, IDX_PLF_OFFBI);
+            long spid = getUnsignedLong(IDX_PLF_SPID);
             SequenceContainer seq = spidToSeqContainer.get(spid);
             if (seq == null) {
                 log.warn("Unknown packet with SPID " + spid + ", ignoring");
                 continue;
             }
 
-            String pname = line[IDX_PLF_NAME];
+            String pname = getString(IDX_PLF_NAME);
 
-            int locationInBits = getInt(line, IDX_PLF_OFFBY) * 8 + getInt(line, IDX_PLF_OFFBI);
-            int nbocc = getInt(line, IDX_PLF_NBOCC, 1);
+            int locationInBits = getInt(IDX_PLF_OFFBY) * 8 + getInt(IDX_PLF_OFFBI);
+            int nbocc = getInt(IDX_PLF_NBOCC, 1);
             if (nbocc < 1) {
                 throw new MibLoadException(ctx, "Invalid PLF_NBOCC " + nbocc);
             }
@@ -1273,7 +1408,7 @@ public abstract class TmMibLoader extends BaseMibLoader {
 
             if (nbocc > 1) {
                 Repeat repeat = new Repeat(new FixedIntegerValue(nbocc));
-                int lgocc = getInt(line, IDX_PLF_LGOCC, 0);
+                int lgocc = getInt(IDX_PLF_LGOCC, 0);
                 repeat.setOffsetSizeInBits(lgocc);
                 entry.setRepeatEntry(repeat);
             }
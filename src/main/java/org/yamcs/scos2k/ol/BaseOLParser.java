@@ -3,6 +3,7 @@ package org.yamcs.scos2k.ol;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,15 +35,22 @@ import org.yamcs.utils.TimeEncoding;
  *
  */
 public abstract class BaseOLParser {
+    // package of the generated classes
+    public static final String GENERATED_PACKAGE = "org.yamcs.scos2k.ol.generated";
+
     Map<String, Variable> localVariables = new HashMap<String, Variable>();
 
     List<String> inputParams = new ArrayList<>();
+    // global variables referenced in the formula; a static field holding the slot is generated for each of them
+    Set<String> globalVars = new LinkedHashSet<>();
     Set<String> noTriggerParams = new HashSet<>();// these are the $ parameters - their change do not trigger the
                                                   // computation
     protected StringBuilder body;
 
     private Function<String, ParameterType> parameterTypes;
     private String name;
+    // type returned by the typed evaluate method; null if the generated code returns an Object
+    private Type returnType;
 
     // Some GAIA scripts were giving errors if this was not done
     //
@@ -54,7 +62,7 @@ public abstract class BaseOLParser {
      * @param code
      */
     public static void generateCodeImports(StringBuilder code) {
-        code.append("package org.yamcs.scos2k.ol.generated;\n");
+        code.append("package " + GENERATED_PACKAGE + ";\n");
         code.append("import java.util.List;\n");
         code.append("import org.yamcs.parameter.ParameterValue;\n");
         code.append("import org.yamcs.parameter.RawEngValue;\n");
@@ -98,17 +106,35 @@ public abstract class BaseOLParser {
             throws ParseException {
         this.parameterTypes = inputParameterTypes;
         this.name = name;
+        this.returnType = getReturnType(parameterTypes.apply(name));
         StringBuilder body = new StringBuilder();
         parse(body);
 
         sb.append("\n");
         sb.append("public class ").append(name).append(" implements OLEvaluator {\n");
+        for (String gv : globalVars) {
+            sb.append("    static final int ").append(getSlotFieldName(gv))
+                    .append(" = GlobalVariables.slot(\"").append(gv).append("\");\n");
+        }
 
         sb.append("\n");
 
         // janino doesn't support generics
         // sb.append(" public Object evaluate(GlobalVariables globalVariables, List<RawEngValue> inputList) {\n");
-        sb.append("    public Object evaluate(GlobalVariables globalVariables, List inputList) {\n");
+        if (returnType == null) {
+            sb.append("    public Object evaluate(GlobalVariables globalVariables, List inputList) {\n");
+        } else {
+            // the Object evaluate method bridges to the typed one
+            String methodName = getEvaluateMethodName(returnType);
+            String boxedType = returnType == Type.BOOLEAN ? "Boolean" : returnType.javaType().substring(0, 1)
+                    .toUpperCase() + returnType.javaType().substring(1);
+            sb.append("    public Object evaluate(GlobalVariables globalVariables, List inputList) {\n");
+            sb.append("        return ").append(boxedType).append(".valueOf(").append(methodName)
+                    .append("(globalVariables, inputList));\n");
+            sb.append("    }\n\n");
+            sb.append("    public ").append(returnType.javaType()).append(" ").append(methodName)
+                    .append("(GlobalVariables globalVariables, List inputList) {\n");
+        }
         if ("DERIVED".equals(name)) {
             sb.append("    System.out.println(inputList);\n");
         }
@@ -130,21 +156,75 @@ public abstract class BaseOLParser {
         sb.append("    }\n}");
     }
 
-    protected String getReturnCode(ExpressionCode ec) {
-        ParameterType outType = parameterTypes.apply(name);
-        if (outType == null) {
-            return ec.code;
+    /**
+     * Returns the type of the value that the generated code returns for an output parameter of the given type, or null
+     * if the value is returned as an Object by {@link OLEvaluator#evaluate(GlobalVariables, java.util.List)}.
+     * <p>
+     * For each of the {@link Type#LONG}, {@link Type#DOUBLE} and {@link Type#BOOLEAN}, the generated class implements
+     * the corresponding typed method of {@link OLEvaluator}.
+     */
+    static Type getReturnType(ParameterType outType) {
+        if (!(outType instanceof BaseDataType)) {
+            return null;
         }
         DataEncoding encoding = ((BaseDataType) outType).getEncoding();
-
-        if ((encoding instanceof IntegerDataEncoding
-                || encoding instanceof FloatDataEncoding) && ec.type == Type.BOOLEAN) {
-            return "OLFunction.bool2int(" + ec.code + ")";
-        } else if ((encoding instanceof IntegerDataEncoding) && (ec.type == Type.DOUBLE)) {
-            return "(long) (" + ec.code + ")";
+        if (encoding instanceof IntegerDataEncoding) {
+            return Type.LONG;
+        } else if (encoding instanceof FloatDataEncoding) {
+            return Type.DOUBLE;
+        } else if (encoding instanceof BooleanDataEncoding) {
+            return Type.BOOLEAN;
         } else {
+            return null;
+        }
+    }
+
+    static String getEvaluateMethodName(Type returnType) {
+        switch (returnType) {
+        case LONG:
+            return "evaluateLong";
+        case DOUBLE:
+            return "evaluateDouble";
+        case BOOLEAN:
+            return "evaluateBoolean";
+        default:
+            throw new IllegalArgumentException("No evaluate method for " + returnType);
+        }
+    }
+
+    protected String getReturnCode(ExpressionCode ec) throws ParseException {
+        if (returnType == null) {
             return ec.code;
         }
+        switch (returnType) {
+        case LONG:
+            if (ec.type == Type.BOOLEAN) {
+                return "OLFunction.bool2int(" + ec.code + ")";
+            } else if (ec.type == Type.DOUBLE) {
+                return "(long) (" + ec.code + ")";
+            } else if (ec.type == Type.ENUM) {
+                return ec.code + ".getRawValue().toLong()";
+            }
+            break;
+        case DOUBLE:
+            if (ec.type == Type.BOOLEAN) {
+                return "OLFunction.bool2int(" + ec.code + ")";
+            } else if (ec.type == Type.ENUM) {
+                return ec.code + ".getRawValue().toDouble()";
+            }
+            break;
+        case BOOLEAN:
+            if (ec.type == Type.LONG || ec.type == Type.DOUBLE) {
+                return "(" + ec.code + ") != 0";
+            }
+            break;
+        default:
+        }
+        if (ec.type == Type.STRING || (ec.type == Type.ENUM && returnType == Type.BOOLEAN)) {
+            throw new ParseException("Cannot return a " + ec.type + " value for the parameter " + name
+                    + " which has a " + returnType + " raw value");
+        }
+        return ec.code;
     }
 
     protected void addVariable(String name, Type type) throws ParseException {
@@ -168,7 +248,8 @@ public abstract class BaseOLParser {
             }
             return new ExpressionCode(v.type, id);
         } else if (isGlobalVar(id)) {
-            return new ExpressionCode(Type.DOUBLE, "globalVariables.get(\"" + id + "\")");
+            globalVars.add(id);
+            return new ExpressionCode(Type.DOUBLE, "globalVariables.get(" + getSlotFieldName(id) + ")");
         } else { // parameter
             int idx = id.indexOf('.');
             String paraName;
@@ -234,6 +315,18 @@ public abstract class BaseOLParser {
         }
     }
 
+    /**
+     * Generates the code for assigning a value to a global variable
+     */
+    protected String getGlobalVarAssignmentCode(String id, ExpressionCode ec) {
+        globalVars.add(id);
+        return "globalVariables.set(" + getSlotFieldName(id) + ", " + ec.code + ")";
+    }
+
+    private static String getSlotFieldName(String id) {
+        return "SLOT_" + id;
+    }
+
     protected boolean isGlobalVar(String id) {
         return id.startsWith("GVAR");
     }
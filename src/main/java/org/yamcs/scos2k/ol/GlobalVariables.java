@@ -1,27 +1,78 @@
 package org.yamcs.scos2k.ol;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Used to store OL global variables 
  * Shared between all OL formulas in one processor
+ * <p>
+ * Each global variable name is associated to a slot (an index in an array of doubles). The slots are allocated
+ * globally (the same name has the same slot in all processors) and are resolved once by the generated code, when the
+ * class is initialized, such that reading or writing a variable does not involve a name lookup.
  * 
  * @author nm
  *
  */
 public class GlobalVariables {
-    Map<String, Double> values = new HashMap<>();
-    
+    // name -> slot, shared by all processors
+    private static final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private static String[] slotNames = new String[0];
+
+    private double[] values = new double[16];
+
+    /**
+     * Returns the slot of the global variable with the given name, allocating a new one if the variable has not been
+     * seen before.
+     */
+    public static int slot(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (slots) {
+            return slots.computeIfAbsent(name, k -> {
+                int n = slotNames.length;
+                String[] names = Arrays.copyOf(slotNames, n + 1);
+                names[n] = k;
+                slotNames = names;
+                return n;
+            });
+        }
+    }
+
+    public void set(int slot, double value) {
+        if (slot >= values.length) {
+            values = Arrays.copyOf(values, Math.max(slot + 1, 2 * values.length));
+        }
+        values[slot] = value;
+    }
+
+    public double get(int slot) {
+        return slot < values.length ? values[slot] : 0;
+    }
+
     public void set(String name, double value) {
-        values.put(name, value);
+        set(slot(name), value);
     }
+
     public double get(String name) {
-        Double d = values.get(name);
-        if(d == null) {
-            return 0;
-        } else {
-            return d;
+        Integer slot = slots.get(name);
+        return slot == null ? 0 : get(slot);
+    }
+
+    /**
+     * 
+     * @return the global variables known so far with their value in this processor
+     */
+    public Map<String, Double> toMap() {
+        String[] names = slotNames;
+        Map<String, Double> m = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            m.put(names[i], get(i));
         }
+        return m;
     }
 }
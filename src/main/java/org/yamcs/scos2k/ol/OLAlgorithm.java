@@ -0,0 +1,42 @@
+package org.yamcs.scos2k.ol;
+
+import org.yamcs.xtce.CustomAlgorithm;
+
+/**
+ * Algorithm corresponding to a SCOS2000 synthetic parameter.
+ * <p>
+ * The algorithm text is the OL formula; in addition it references the compilation unit containing the evaluator class
+ * generated from the formula, such that it does not have to be compiled again when the algorithm is instantiated.
+ */
+public class OLAlgorithm extends CustomAlgorithm {
+    private static final long serialVersionUID = 1L;
+
+    private OLCompilationUnit compilationUnit;
+    private String className;
+
+    public OLAlgorithm(String name) {
+        super(name);
+        setLanguage(OLAlgorithmEngine.LANGUAGE_NAME);
+    }
+
+    public void setCompiledCode(OLCompilationUnit compilationUnit, String className) {
+        this.compilationUnit = compilationUnit;
+        this.className = className;
+    }
+
+    /**
+     * 
+     * @return the compilation unit containing the evaluator class or null if the formula has not been precompiled
+     */
+    public OLCompilationUnit getCompilationUnit() {
+        return compilationUnit;
+    }
+
+    /**
+     * 
+     * @return the fully qualified name of the evaluator class
+     */
+    public String getClassName() {
+        return className;
+    }
+}
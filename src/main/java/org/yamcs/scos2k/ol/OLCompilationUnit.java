@@ -0,0 +1,54 @@
+package org.yamcs.scos2k.ol;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.codehaus.commons.compiler.util.reflect.ByteArrayClassLoader;
+
+/**
+ * The bytecode of a set of OL evaluator classes compiled together by the {@link OLCompiler}.
+ * <p>
+ * The object is part of the MDB (referenced by the {@link OLAlgorithm}s) and is serialized with it. All the classes of
+ * the unit are loaded by one class loader, created the first time an evaluator is instantiated.
+ */
+public class OLCompilationUnit implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // fully qualified class name -> bytecode
+    private final Map<String, byte[]> bytecodes;
+    private transient volatile ClassLoader classLoader;
+
+    public OLCompilationUnit(Map<String, byte[]> bytecodes) {
+        this.bytecodes = bytecodes;
+    }
+
+    public boolean containsClass(String className) {
+        return bytecodes.containsKey(className);
+    }
+
+    public int getNumClasses() {
+        return bytecodes.size();
+    }
+
+    /**
+     * Creates a new instance of the evaluator with the given (fully qualified) class name.
+     */
+    public OLEvaluator newEvaluator(String className) throws ReflectiveOperationException {
+        Class<?> c = getClassLoader().loadClass(className);
+        return (OLEvaluator) c.getDeclaredConstructor().newInstance();
+    }
+
+    private ClassLoader getClassLoader() {
+        ClassLoader cl = classLoader;
+        if (cl == null) {
+            synchronized (this) {
+                cl = classLoader;
+                if (cl == null) {
+                    cl = new ByteArrayClassLoader(bytecodes, OLEvaluator.class.getClassLoader());
+                    classLoader = cl;
+                }
+            }
+        }
+        return cl;
+    }
+}
@@ -0,0 +1,120 @@
+package org.yamcs.scos2k.ol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.SimpleCompiler;
+
+/**
+ * Compiles together the classes generated from many OL formulas.
+ * <p>
+ * The classes are grouped in shards of up to {@code shardSize} classes; each shard is compiled as one compilation
+ * unit (the shards are compiled in parallel). If the compilation of a shard fails, it is split in two and each half
+ * is compiled separately, until the classes failing to compile are isolated. This way one bad formula does not prevent
+ * the others from being compiled.
+ *
+ */
+public class OLCompiler {
+    public static final int DEFAULT_SHARD_SIZE = 500;
+
+    final int shardSize;
+    // class name -> class code
+    private final Map<String, String> classes = new LinkedHashMap<>();
+    private final Map<String, CompileException> failures = new LinkedHashMap<>();
+
+    public OLCompiler() {
+        this(DEFAULT_SHARD_SIZE);
+    }
+
+    public OLCompiler(int shardSize) {
+        if (shardSize < 1) {
+            throw new IllegalArgumentException("shardSize has to be at least 1");
+        }
+        this.shardSize = shardSize;
+    }
+
+    /**
+     * Adds a class to be compiled.
+     *
+     * @param name
+     *            - the simple name of the class
+     * @param code
+     *            - the class definition as generated by {@link BaseOLParser#generateCode}, without the package and
+     *            import declarations
+     */
+    public void addClass(String name, String code) {
+        classes.put(name, code);
+    }
+
+    public static String getClassName(String name) {
+        return BaseOLParser.GENERATED_PACKAGE + "." + name;
+    }
+
+    /**
+     * Compiles all the classes added.
+     *
+     * @return a map from the simple class name to the compilation unit containing the class. The classes which failed
+     *         to compile are not part of the map, they can be retrieved with {@link #getFailures()}.
+     */
+    public Map<String, OLCompilationUnit> compile() {
+        List<List<String>> shards = new ArrayList<>();
+        List<String> names = new ArrayList<>(classes.keySet());
+        for (int i = 0; i < names.size(); i += shardSize) {
+            shards.add(names.subList(i, Math.min(names.size(), i + shardSize)));
+        }
+        List<Map<String, OLCompilationUnit>> results = shards.parallelStream()
+                .map(this::compileShard)
+                .collect(Collectors.toList());
+
+        Map<String, OLCompilationUnit> r = new HashMap<>();
+        results.forEach(r::putAll);
+        return r;
+    }
+
+    /**
+     *
+     * @return the compilation errors for the classes that failed to compile
+     */
+    public Map<String, CompileException> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    private Map<String, OLCompilationUnit> compileShard(List<String> names) {
+        Map<String, OLCompilationUnit> r = new HashMap<>();
+        compile(names, r);
+        return r;
+    }
+
+    private void compile(List<String> names, Map<String, OLCompilationUnit> result) {
+        StringBuilder code = new StringBuilder();
+        BaseOLParser.generateCodeImports(code);
+        for (String name : names) {
+            code.append(classes.get(name)).append("\n");
+        }
+        try {
+            SimpleCompiler compiler = new SimpleCompiler();
+            compiler.setParentClassLoader(OLEvaluator.class.getClassLoader());
+            compiler.cook(code.toString());
+            OLCompilationUnit unit = new OLCompilationUnit(new HashMap<>(compiler.getBytecodes()));
+            for (String name : names) {
+                result.put(name, unit);
+            }
+        } catch (CompileException e) {
+            if (names.size() == 1) {
+                synchronized (failures) {
+                    failures.put(names.get(0), e);
+                }
+            } else {
+                int k = names.size() / 2;
+                compile(names.subList(0, k), result);
+                compile(names.subList(k, names.size()), result);
+            }
+        }
+    }
+}
@@ -19,4 +19,33 @@ public interface OLEvaluator {
      * @return
      */
     Object evaluate(GlobalVariables globalVariables, List<RawEngValue> inputValues);
+
+    /**
+     * Evaluates the expression returning the raw value as a long.
+     * <p>
+     * Implemented by the generated code (without boxing the result) when the output parameter has an integer
+     * encoding.
+     */
+    default long evaluateLong(GlobalVariables globalVariables, List<RawEngValue> inputValues) {
+        return ((Number) evaluate(globalVariables, inputValues)).longValue();
+    }
+
+    /**
+     * Evaluates the expression returning the raw value as a double.
+     * <p>
+     * Implemented by the generated code (without boxing the result) when the output parameter has a float encoding.
+     */
+    default double evaluateDouble(GlobalVariables globalVariables, List<RawEngValue> inputValues) {
+        return ((Number) evaluate(globalVariables, inputValues)).doubleValue();
+    }
+
+    /**
+     * Evaluates the expression returning the raw value as a boolean.
+     * <p>
+     * Implemented by the generated code (without boxing the result) when the output parameter has a boolean
+     * encoding.
+     */
+    default boolean evaluateBoolean(GlobalVariables globalVariables, List<RawEngValue> inputValues) {
+        return (Boolean) evaluate(globalVariables, inputValues);
+    }
 }
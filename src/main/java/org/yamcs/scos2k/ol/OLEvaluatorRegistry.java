@@ -0,0 +1,135 @@
+package org.yamcs.scos2k.ol;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.SimpleCompiler;
+import org.yamcs.logging.Log;
+import org.yamcs.mdb.DataEncodingDecoder;
+import org.yamcs.utils.StringConverter;
+import org.yamcs.xtce.BaseDataType;
+import org.yamcs.xtce.CustomAlgorithm;
+import org.yamcs.xtce.InputParameter;
+import org.yamcs.xtce.OutputParameter;
+import org.yamcs.xtce.ParameterType;
+import org.yamcs.xtce.XtceDb;
+
+/**
+ * Keeps the compiled OL evaluators shared between all the processors using the same MDB, such that creating a new
+ * processor (e.g. for a replay) does not compile again the formulas.
+ * <p>
+ * The evaluators are kept per MDB in a weak map: when an MDB is replaced (e.g. reloaded after a change of the MIB) and
+ * not used anymore, its compilation units and their class loaders can be garbage collected.
+ * <p>
+ * The evaluators are registered under a key made of the algorithm qualified name, the hash of the formula and the
+ * signature of the input and output parameter types; the code generated from a formula depends on all of these.
+ * <p>
+ * If the algorithm is an {@link OLAlgorithm} precompiled by the MIB loader, its compilation unit is registered as is;
+ * otherwise the formula is parsed and compiled the first time it is requested.
+ */
+public class OLEvaluatorRegistry {
+    static final Log log = new Log(OLEvaluatorRegistry.class);
+
+    // MDB -> (key -> compilation unit)
+    private static final Map<XtceDb, Map<String, OLCompilationUnit>> registry = new WeakHashMap<>();
+
+    /**
+     * Returns a new evaluator instance for the given algorithm, compiling the formula if it has not been done before.
+     *
+     * @throws ParseException
+     *             if the formula cannot be parsed
+     * @throws CompileException
+     *             if the generated code cannot be compiled
+     */
+    public static OLEvaluator newEvaluator(CustomAlgorithm alg, XtceDb xtcedb)
+            throws ParseException, CompileException, ReflectiveOperationException {
+        Map<String, OLCompilationUnit> units = getUnits(xtcedb);
+        String key = getKey(alg);
+        OLCompilationUnit unit = units.get(key);
+        if (unit == null) {
+            if (alg instanceof OLAlgorithm olalg && olalg.getCompilationUnit() != null) {
+                unit = olalg.getCompilationUnit();
+            } else {
+                unit = compile(alg, xtcedb);
+            }
+            OLCompilationUnit u1 = units.putIfAbsent(key, unit);
+            if (u1 != null) {
+                unit = u1;
+            }
+        }
+        return unit.newEvaluator(OLCompiler.getClassName(alg.getName()));
+    }
+
+    private static Map<String, OLCompilationUnit> getUnits(XtceDb xtcedb) {
+        synchronized (registry) {
+            return registry.computeIfAbsent(xtcedb, k -> new ConcurrentHashMap<>());
+        }
+    }
+
+    private static OLCompilationUnit compile(CustomAlgorithm alg, XtceDb xtcedb)
+            throws ParseException, CompileException {
+        String formula = alg.getAlgorithmText();
+        log.debug("Compiling OL formula for {}", alg.getQualifiedName());
+        OLParser parser = new OLParser(new StringReader(formula));
+        String code = parser.generateCodeStandalone(alg.getName(),
+                pname -> xtcedb.getParameter(alg.getSubsystemName(), pname).getParameterType());
+        try {
+            SimpleCompiler compiler = new SimpleCompiler();
+            compiler.setParentClassLoader(OLEvaluator.class.getClassLoader());
+            compiler.cook(code);
+            return new OLCompilationUnit(new HashMap<>(compiler.getBytecodes()));
+        } catch (CompileException e) {
+            log.warn("Failed to compile code "
+                    + "\n---------\n{}\n--------\n"
+                    + " generated from formula"
+                    + "\n---------\n{}\n--------\n", code, formula);
+            throw e;
+        }
+    }
+
+    static String getKey(CustomAlgorithm alg) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(alg.getQualifiedName()).append("|").append(sha256(alg.getAlgorithmText()));
+        for (InputParameter ip : alg.getInputList()) {
+            sb.append("|");
+            appendTypeSignature(sb, ip.getParameterInstance().getParameter().getParameterType());
+        }
+        sb.append("|->");
+        for (OutputParameter op : alg.getOutputList()) {
+            sb.append("|");
+            appendTypeSignature(sb, op.getParameter().getParameterType());
+        }
+        return sb.toString();
+    }
+
+    private static void appendTypeSignature(StringBuilder sb, ParameterType ptype) {
+        if (ptype == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append(ptype.getClass().getSimpleName());
+        if (ptype instanceof BaseDataType bdt) {
+            sb.append("/").append(BaseOLParser.getEngType(ptype));
+            if (bdt.getEncoding() != null) {
+                sb.append("/").append(bdt.getEncoding().getClass().getSimpleName())
+                        .append("/").append(DataEncodingDecoder.getRawType(bdt.getEncoding()));
+            }
+        }
+    }
+
+    private static String sha256(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return StringConverter.arrayToHexString(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
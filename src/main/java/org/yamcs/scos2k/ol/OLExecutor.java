@@ -1,8 +1,5 @@
 package org.yamcs.scos2k.ol;
 
-import java.io.StringReader;
-
-import org.codehaus.janino.SimpleCompiler;
 import org.yamcs.algorithms.AbstractAlgorithmExecutor;
 import org.yamcs.algorithms.AlgorithmException;
 import org.yamcs.algorithms.AlgorithmExecutionContext;
@@ -14,9 +11,14 @@ import org.yamcs.xtce.Algorithm;
 import org.yamcs.xtce.BaseDataType;
 import org.yamcs.xtce.CustomAlgorithm;
 import org.yamcs.xtce.DataEncoding;
+import org.yamcs.xtce.FloatDataEncoding;
+import org.yamcs.xtce.IntegerDataEncoding;
 import org.yamcs.xtce.OutputParameter;
-import org.yamcs.xtce.XtceDb;
+import org.yamcs.xtce.Parameter;
+import org.yamcs.xtce.ParameterType;
+import org.yamcs.utils.ValueUtility;
 import org.yamcs.mdb.DataEncodingDecoder;
+import org.yamcs.mdb.DataEncodingUtils;
 import org.yamcs.mdb.ParameterTypeProcessor;
 import org.yamcs.mdb.ProcessingContext;
 import org.yamcs.mdb.ProcessorData;
@@ -29,44 +31,80 @@ public class OLExecutor extends AbstractAlgorithmExecutor {
     final OutputParameter outputParameter;
     final EventProducer eventProducer;
     ParameterTypeProcessor parameterTypeProcessor;
+    final DataEncoding outputEncoding;
+    final Parameter outputParam;
+    // evaluates the formula and converts the result into the raw value of the output parameter;
+    // null if the evaluate returning Object has to be used
+    final RawValueEvaluator rawValueEvaluator;
 
     public OLExecutor(Algorithm algorithmDef, AlgorithmExecutionContext execCtx) throws AlgorithmException {
         super(algorithmDef, execCtx);
         CustomAlgorithm calg = (CustomAlgorithm) algorithmDef;
         outputParameter = calg.getOutputList().get(0);
+        ParameterType outType = outputParameter.getParameter().getParameterType();
+        outputEncoding = ((BaseDataType) outType).getEncoding();
+        outputParam = outputParameter.getParameter();
         ProcessorData pdata = execCtx.getProcessorData();
         globalVars = getGlobalVars(pdata);
         this.eventProducer = execCtx.getProcessorData().getEventProducer();
-        XtceDb xtcedb = execCtx.getMdb();
-        String formula = calg.getAlgorithmText();
         this.parameterTypeProcessor = new ParameterTypeProcessor(execCtx.getProcessorData());
         String name = algorithmDef.getName();
+        String formula = calg.getAlgorithmText();
 
-        OLParser parser = new OLParser(new StringReader(formula));
-        String code;
         try {
-            code = parser.generateCodeStandalone(name,
-                    pname -> xtcedb.getParameter(algorithmDef.getSubsystemName(), pname).getParameterType());
-        } catch (Exception e) {
+            olEvaluator = OLEvaluatorRegistry.newEvaluator(calg, execCtx.getMdb());
+        } catch (ParseException | TokenMgrError e) {
             log.warn("Failed to parse formula {}", formula, e);
             execCtx.getProcessorData().getEventProducer()
                     .sendCritical("Unable to parse the OL Formula for '" + name + "': " + e.getMessage());
             throw new AlgorithmException("Failed to compile OL formula", e);
-        }
-        try {
-            SimpleCompiler compiler = new SimpleCompiler();
-            compiler.cook(code);
-            Class<?> cexprClass = compiler.getClassLoader().loadClass("org.yamcs.scos2k.ol.generated." + name);
-            olEvaluator = (OLEvaluator) cexprClass.getDeclaredConstructor().newInstance();
         } catch (Exception e) {
-            log.warn("Failed to compile code "
-                    + "\n---------\n{}\n--------\n"
-                    + " generated from formula"
-                    + "\n---------\n{}\n--------\n", code, formula, e);
+            log.warn("Failed to compile formula {}", formula, e);
             execCtx.getProcessorData().getEventProducer().sendCritical(algorithmDef.getName(),
                     "Unable to compile the OL Formula: " + e.getMessage());
             throw new AlgorithmException("Failed to compile OL formula", e);
         }
+        rawValueEvaluator = getRawValueEvaluator(BaseOLParser.getReturnType(outType));
+    }
+
+    /**
+     * Selects the typed evaluate method and the conversion of its result into a raw value. The conversions follow
+     * the rules from {@link DataEncodingUtils}.
+     */
+    private RawValueEvaluator getRawValueEvaluator(Type returnType) {
+        if (returnType == Type.LONG) {
+            IntegerDataEncoding ide = (IntegerDataEncoding) outputEncoding;
+            int size = ide.getSizeInBits();
+            long mask = size > 0 ? -1L >>> (64 - size) : -1L;
+            boolean unsigned = ide.getEncoding() == IntegerDataEncoding.Encoding.UNSIGNED;
+            if (size > 0 && size <= 32) {
+                if (unsigned) {
+                    return () -> ValueUtility
+                            .getUint32Value((int) (olEvaluator.evaluateLong(globalVars, inputValues) & mask));
+                } else {
+                    return () -> ValueUtility
+                            .getSint32Value((int) (olEvaluator.evaluateLong(globalVars, inputValues) & mask));
+                }
+            } else {
+                if (unsigned) {
+                    return () -> ValueUtility.getUint64Value(olEvaluator.evaluateLong(globalVars, inputValues) & mask);
+                } else {
+                    return () -> ValueUtility.getSint64Value(olEvaluator.evaluateLong(globalVars, inputValues) & mask);
+                }
+            }
+        } else if (returnType == Type.DOUBLE) {
+            FloatDataEncoding fde = (FloatDataEncoding) outputEncoding;
+            if (fde.getSizeInBits() <= 32 && (fde.getEncoding() == FloatDataEncoding.Encoding.IEEE754_1985
+                    || fde.getEncoding() == FloatDataEncoding.Encoding.STRING)) {
+                return () -> ValueUtility.getFloatValue((float) olEvaluator.evaluateDouble(globalVars, inputValues));
+            } else {
+                return () -> ValueUtility.getDoubleValue(olEvaluator.evaluateDouble(globalVars, inputValues));
+            }
+        } else if (returnType == Type.BOOLEAN) {
+            return () -> ValueUtility.getBooleanValue(olEvaluator.evaluateBoolean(globalVars, inputValues));
+        } else {
+            return null;
+        }
     }
 
     private GlobalVariables getGlobalVars(ProcessorData pdata) {
@@ -82,22 +120,28 @@ public class OLExecutor extends AbstractAlgorithmExecutor {
 
     @Override
     public AlgorithmExecutionResult execute(long acqTime, long genTime, ProcessingContext pctx) {
-        ParameterValue out = new ParameterValue(outputParameter.getParameter());
+        ParameterValue out = new ParameterValue(outputParam);
         out.setAcquisitionTime(acqTime);
         out.setGenerationTime(genTime);
-        Object value = olEvaluator.evaluate(globalVars, inputValues);
-        BaseDataType bdt = (BaseDataType) outputParameter.getParameter().getParameterType();
-        DataEncoding de = bdt.getEncoding();
-        Value rawValue = DataEncodingDecoder.getRawValue(de, value);
-        if (rawValue == null) {
-            execCtx.getProcessorData().getEventProducer()
-                    .sendWarning(getAlgorithm().getName(), "Cannot convert raw value from algorithm output "
-                            + "'" + value + "' of type " + value.getClass() + " into " + de);
-            out.setInvalid();
+        if (rawValueEvaluator != null) {
+            out.setRawValue(rawValueEvaluator.evaluate());
         } else {
+            Object value = olEvaluator.evaluate(globalVars, inputValues);
+            Value rawValue = DataEncodingDecoder.getRawValue(outputEncoding, value);
+            if (rawValue == null) {
+                eventProducer.sendWarning(getAlgorithm().getName(), "Cannot convert raw value from algorithm output "
+                        + "'" + value + "' of type " + value.getClass() + " into " + outputEncoding);
+                out.setInvalid();
+                return new AlgorithmExecutionResult(out);
+            }
             out.setRawValue(rawValue);
-            parameterTypeProcessor.calibrate(out);
         }
+        parameterTypeProcessor.calibrate(out);
         return new AlgorithmExecutionResult(out);
     }
+
+    @FunctionalInterface
+    interface RawValueEvaluator {
+        Value evaluate();
+    }
 }
@@ -141,8 +141,7 @@ public class OLParser extends BaseOLParser implements OLParserConstants {
           body.append(" = ");
           body.append(ec.code);
       } else {
-          body.append("globalVariables.set(\u005c"").append(varname).append('"')
-            .append(", ").append(ec.code).append(")");
+          body.append(getGlobalVarAssignmentCode(varname, ec));
       }
   }
 